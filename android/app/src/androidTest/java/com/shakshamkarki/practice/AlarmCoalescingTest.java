@@ -0,0 +1,87 @@
+package com.shakshamkarki.practice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.SystemClock;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * A burst of fires for the same minute must ring as one: a single session
+ * and at most one player, with every other fire joining it.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AlarmCoalescingTest {
+    private static final int FIRES = 20;
+    private static final long SETTLE_TIMEOUT_MS = 15 * 1000;
+
+    private Context context;
+    private long previousWindowMs;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        previousWindowMs = AlarmPlayback.getCoalesceWindowMs(context);
+        AlarmPlayback.setCoalesceWindowMs(context, AlarmPlayback.DEFAULT_COALESCE_WINDOW_MS);
+        AlarmProcess.reloadSettings(context);
+        AlarmProcess.stop(context, null);
+    }
+
+    @After
+    public void tearDown() {
+        AlarmProcess.stop(context, null);
+        AlarmPlayback.setCoalesceWindowMs(context, previousWindowMs);
+        AlarmProcess.reloadSettings(context);
+    }
+
+    @Test
+    public void burstOfFiresRingsOnePlayer() throws InterruptedException {
+        AlarmProcess.Status before = AlarmProcess.getStatus(context);
+        List<String> alarmIds = new ArrayList<>();
+        for (int i = 0; i < FIRES; i++) {
+            String alarmId = "coalescing-test-" + i;
+            alarmIds.add(alarmId);
+            // As AlarmManager delivers it
+            Intent intent = new Intent(context, AlarmReceiver.class);
+            intent.putExtra("alarmId", alarmId);
+            intent.putExtra("alarmTime", "Coalescing test");
+            intent.putExtra("fireTime", System.currentTimeMillis());
+            context.sendBroadcast(intent);
+        }
+
+        AlarmProcess.Status after = awaitFires(before);
+        assertEquals("Sessions started", 1, after.sessionsStarted - before.sessionsStarted);
+        assertEquals("Fires joined to the ring", FIRES - 1, after.coalescedFires - before.coalescedFires);
+        int players = (after.poolHits + after.poolMisses) - (before.poolHits + before.poolMisses);
+        assertTrue("Players taken: " + players, players <= 1);
+        // Stopping the ring dismisses every fire in it
+        assertEquals(new HashSet<>(alarmIds), new HashSet<>(AlarmProcess.stop(context, null)));
+    }
+
+    /** Wait until the alarm process has either started or joined every fire */
+    private AlarmProcess.Status awaitFires(AlarmProcess.Status before) throws InterruptedException {
+        long deadline = SystemClock.elapsedRealtime() + SETTLE_TIMEOUT_MS;
+        while (true) {
+            AlarmProcess.Status status = AlarmProcess.getStatus(context);
+            int handled = (status.sessionsStarted - before.sessionsStarted)
+                + (status.coalescedFires - before.coalescedFires);
+            if (handled >= FIRES || SystemClock.elapsedRealtime() > deadline) {
+                return status;
+            }
+            Thread.sleep(100);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.shakshamkarki.practice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.SystemClock;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Everything a fire runs on the alarm process's main thread - AlarmReceiver's
+ * onReceive, AlarmAudioService's onStartCommand with the ring transition,
+ * startForeground() and the wake lock hand-off - must not touch the disk.
+ * Delivers real fires with a StrictMode listener on that thread and fails
+ * on any violation.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AlarmFirePathStrictModeTest {
+    private static final long RING_TIMEOUT_MS = 15 * 1000;
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        // Violation listeners need Android 9
+        assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.P);
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        AlarmProcess.stop(context, null);
+        AlarmProcess.watchMainThreadIo(context);
+    }
+
+    @After
+    public void tearDown() {
+        if (context != null) {
+            AlarmProcess.stop(context, null);
+        }
+    }
+
+    @Test
+    public void receiverFireDoesNoMainThreadIo() throws InterruptedException {
+        AlarmProcess.Status before = AlarmProcess.getStatus(context);
+        fire("strictmode-fire");
+        awaitHandled(before, 1, "strictmode-fire");
+        // A second fire while ringing takes the join path
+        fire("strictmode-join");
+        awaitHandled(before, 2, "strictmode-join");
+        assertNoMainThreadIo();
+    }
+
+    @Test
+    public void startAndAwaitDoesNoMainThreadIo() throws InterruptedException {
+        // A start from JS, with no receiver ahead of it to prepare the notification
+        CountDownLatch settled = new CountDownLatch(1);
+        String[] failure = new String[1];
+        AlarmProcess.startAndAwait(context, "strictmode-start", null, new AlarmProcess.StartCallback() {
+            @Override
+            public void onFirstAudio(long timeToFirstAudioMs, String source) {
+                settled.countDown();
+            }
+
+            @Override
+            public void onFailure(String code, String message) {
+                failure[0] = code + ": " + message;
+                settled.countDown();
+            }
+        });
+        assertTrue(settled.await(AlarmProcess.START_RESULT_TIMEOUT_MS + 1000, TimeUnit.MILLISECONDS));
+        assertNull(failure[0]);
+        assertNoMainThreadIo();
+    }
+
+    private void fire(String alarmId) {
+        Intent intent = new Intent(context, AlarmReceiver.class);
+        intent.putExtra("alarmId", alarmId);
+        intent.putExtra("alarmTime", "StrictMode test");
+        intent.putExtra("fireTime", System.currentTimeMillis());
+        context.sendBroadcast(intent);
+    }
+
+    /**
+     * Wait until the service has taken this fire and finished its main-thread
+     * part, which ends by releasing the receiver's fire wake lock
+     */
+    private void awaitHandled(AlarmProcess.Status before, int fires, String alarmId) throws InterruptedException {
+        long deadline = SystemClock.elapsedRealtime() + RING_TIMEOUT_MS;
+        int handled = 0;
+        while (SystemClock.elapsedRealtime() < deadline) {
+            AlarmProcess.Status status = AlarmProcess.getStatus(context);
+            handled = (status.sessionsStarted - before.sessionsStarted)
+                + (status.coalescedFires - before.coalescedFires);
+            if (handled >= fires && !holdsFireWakeLock(status, alarmId)) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        assertEquals("Fires handled", fires, handled);
+    }
+
+    private static boolean holdsFireWakeLock(AlarmProcess.Status status, String alarmId) {
+        for (AlarmWakeLocks.Active hold : status.activeWakeLocks) {
+            if (AlarmWakeLocks.REASON_FIRE.equals(hold.reason) && alarmId.equals(hold.alarmId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void assertNoMainThreadIo() {
+        AlarmProcess.Status status = AlarmProcess.getStatus(context);
+        assertTrue("Disk access on the alarm process's main thread: " + status.mainThreadIo,
+            status.mainThreadIo.isEmpty());
+    }
+}
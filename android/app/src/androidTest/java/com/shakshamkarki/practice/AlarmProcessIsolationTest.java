@@ -0,0 +1,84 @@
+package com.shakshamkarki.practice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Process;
+import android.os.SystemClock;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+/**
+ * A fire with the alarm screen up must run entirely in ":alarm", without
+ * React Native ever being loaded there.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AlarmProcessIsolationTest {
+    private static final String ALARM_ID = "isolation-test";
+    private static final long RING_TIMEOUT_MS = 15 * 1000;
+    /** AlarmActivity's inflate and first frame */
+    private static final long SCREEN_SETTLE_MS = 2 * 1000;
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        AlarmProcess.stop(context, null);
+    }
+
+    @After
+    public void tearDown() {
+        AlarmProcess.stop(context, null);
+    }
+
+    @Test
+    public void fireDoesNotLoadReactNative() throws InterruptedException {
+        AlarmProcess.Status before = AlarmProcess.getStatus(context);
+        assertNotEquals("Alarm process is the test's own process", Process.myPid(), before.pid);
+
+        Intent fire = new Intent(context, AlarmReceiver.class);
+        fire.putExtra("alarmId", ALARM_ID);
+        fire.putExtra("alarmTime", "Isolation test");
+        fire.putExtra("fireTime", System.currentTimeMillis());
+        context.sendBroadcast(fire);
+
+        // As the full-screen intent would show it
+        Intent screen = new Intent(context, AlarmActivity.class);
+        screen.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        screen.putExtra("alarm_id", ALARM_ID);
+        screen.putExtra("alarm_time", "Isolation test");
+        context.startActivity(screen);
+
+        AlarmProcess.Status ringing = awaitSession(before);
+        assertEquals("Sessions started", 1, ringing.sessionsStarted - before.sessionsStarted);
+        Thread.sleep(SCREEN_SETTLE_MS);
+
+        AlarmProcess.Status after = AlarmProcess.getStatus(context);
+        assertEquals("Alarm process restarted during the fire", before.pid, after.pid);
+        assertEquals(Collections.emptyList(), after.reactNativeLibraries);
+        assertTrue(AlarmProcess.stop(context, ALARM_ID).contains(ALARM_ID));
+    }
+
+    private AlarmProcess.Status awaitSession(AlarmProcess.Status before) throws InterruptedException {
+        long deadline = SystemClock.elapsedRealtime() + RING_TIMEOUT_MS;
+        while (true) {
+            AlarmProcess.Status status = AlarmProcess.getStatus(context);
+            if (status.sessionsStarted > before.sessionsStarted || SystemClock.elapsedRealtime() > deadline) {
+                return status;
+            }
+            Thread.sleep(100);
+        }
+    }
+}
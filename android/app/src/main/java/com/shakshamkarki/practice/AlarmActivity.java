@@ -4,17 +4,33 @@ import android.app.Activity;
 import android.app.KeyguardManager;
 import android.content.Context;
 import android.content.Intent;
+import android.content.res.ColorStateList;
+import android.graphics.Color;
+import android.graphics.Typeface;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.style.AbsoluteSizeSpan;
+import android.text.style.ForegroundColorSpan;
+import android.text.style.StyleSpan;
 import android.util.Log;
+import android.util.TypedValue;
+import android.view.Gravity;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.view.Window;
 import android.view.WindowManager;
 import android.widget.Button;
+import android.widget.FrameLayout;
+import android.widget.ImageView;
 import android.widget.TextView;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
+import android.widget.Toast;
+import java.util.TimeZone;
 
 /**
  * NATIVE JAVA ALARM ACTIVITY
@@ -27,12 +43,25 @@ public class AlarmActivity extends Activity {
     public static final String EXTRA_ALARM_TIME = "alarm_time";
     public static final String EXTRA_AUDIO_PATH = "audio_path";
     
+    private static final int WRAP = FrameLayout.LayoutParams.WRAP_CONTENT;
+    private static final String NO_SNOOZES_LEFT = "No snoozes left - press Stop";
+    
+    /** Async trace sections from onCreate to the first frame and to reportFullyDrawn(), for Macrobenchmark */
+    public static final String TRACE_INITIAL_DISPLAY = "AlarmActivityInitialDisplay";
+    public static final String TRACE_FULL_DISPLAY = "AlarmActivityFullDisplay";
+    
     private String alarmId;
     private String alarmTime;
-    private String audioPath;
+    private Button snoozeButton;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        final long createdAt = SystemClock.elapsedRealtime();
+        final int traceCookie = (int) createdAt;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(TRACE_INITIAL_DISPLAY, traceCookie);
+            Trace.beginAsyncSection(TRACE_FULL_DISPLAY, traceCookie);
+        }
         super.onCreate(savedInstanceState);
         
         Log.d(TAG, "🚨🚨🚨 NATIVE ALARM ACTIVITY CREATED - JAVA UI 🚨🚨🚨");
@@ -41,7 +70,6 @@ public class AlarmActivity extends Activity {
         Intent intent = getIntent();
         alarmId = intent.getStringExtra(EXTRA_ALARM_ID);
         alarmTime = intent.getStringExtra(EXTRA_ALARM_TIME);
-        audioPath = intent.getStringExtra(EXTRA_AUDIO_PATH);
         
         Log.d(TAG, "Alarm ID: " + alarmId);
         Log.d(TAG, "Alarm Time: " + alarmTime);
@@ -49,13 +77,50 @@ public class AlarmActivity extends Activity {
         // Configure window to show over lock screen
         setupWindowFlags();
         
-        // Set the layout
-        setContentView(R.layout.activity_alarm);
+        // Built in code - one flat FrameLayout, no XML inflation before the first frame
+        setContentView(buildContentView());
         
-        // Initialize UI
-        initializeUI();
+        // Nothing below is needed to show the alarm - it waits for the first frame
+        runAfterFirstDraw(() -> {
+            long drawnAt = SystemClock.elapsedRealtime();
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                Trace.endAsyncSection(TRACE_INITIAL_DISPLAY, traceCookie);
+            }
+            requestDismissKeyguard();
+            AlarmMetrics.markLatest(this, AlarmMetrics.STAGE_ACTIVITY_CREATED, createdAt);
+            AlarmMetrics.markLatest(this, AlarmMetrics.STAGE_ACTIVITY_DRAWN, drawnAt);
+            
+            // So a Snooze tap knows without disk access whether one is left
+            Context appContext = getApplicationContext();
+            Handler handler = new Handler(Looper.getMainLooper());
+            AlarmReceiverWork.run(AlarmReceiverWork.ACTION_SNOOZE_BUDGET, alarmId, () -> {
+                try {
+                    AlarmPlayback.loadSnoozeBudget(appContext);
+                } finally {
+                    handler.post(() -> onSnoozeBudgetLoaded(traceCookie, createdAt, drawnAt));
+                }
+            });
+        });
+    }
+
+    /**
+     * The Snooze button's state is final - the screen is fully drawn
+     */
+    private void onSnoozeBudgetLoaded(int traceCookie, long createdAt, long drawnAt) {
+        if (AlarmPlayback.isOutOfSnoozes(alarmId)) {
+            snoozeButton.setEnabled(false);
+        }
+        if (!isFinishing()) {
+            reportFullyDrawn();
+        }
+        long fullyDrawnAt = SystemClock.elapsedRealtime();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(TRACE_FULL_DISPLAY, traceCookie);
+        }
         
-        Log.d(TAG, "✅ Native alarm activity fully initialized");
+        AlarmMetrics.markLatest(this, AlarmMetrics.STAGE_ACTIVITY_FULLY_DRAWN, fullyDrawnAt);
+        Log.d(TAG, "✅ First frame " + (drawnAt - createdAt) + "ms after onCreate, fully drawn at "
+            + (fullyDrawnAt - createdAt) + "ms");
     }
 
     private void setupWindowFlags() {
@@ -63,11 +128,6 @@ public class AlarmActivity extends Activity {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) {
             setShowWhenLocked(true);
             setTurnScreenOn(true);
-            
-            KeyguardManager keyguardManager = (KeyguardManager) getSystemService(Context.KEYGUARD_SERVICE);
-            if (keyguardManager != null) {
-                keyguardManager.requestDismissKeyguard(this, null);
-            }
         } else {
             Window window = getWindow();
             window.addFlags(
@@ -80,94 +140,149 @@ public class AlarmActivity extends Activity {
         }
     }
 
-    private void initializeUI() {
-        // Get UI elements
-        TextView timeDisplay = findViewById(R.id.time_display);
-        TextView alarmLabel = findViewById(R.id.alarm_label);
-        Button stopButton = findViewById(R.id.stop_button);
-        Button snoozeButton = findViewById(R.id.snooze_button);
+    private void requestDismissKeyguard() {
+        // Older versions dismiss it through FLAG_DISMISS_KEYGUARD
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) {
+            KeyguardManager keyguardManager = (KeyguardManager) getSystemService(Context.KEYGUARD_SERVICE);
+            if (keyguardManager != null) {
+                keyguardManager.requestDismissKeyguard(this, null);
+            }
+        }
+    }
+
+    private View buildContentView() {
+        FrameLayout root = new FrameLayout(this);
+        root.setBackgroundColor(Color.BLACK);
+        root.setPadding(dp(32), dp(32), dp(32), dp(32));
         
-        // Set current time
-        SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm", Locale.getDefault());
-        String currentTime = timeFormat.format(new Date());
-        timeDisplay.setText(currentTime);
+        // Alarm icon
+        ImageView icon = new ImageView(this);
+        icon.setImageResource(R.drawable.ic_notification);
+        icon.setImageTintList(ColorStateList.valueOf(Color.WHITE));
+        root.addView(icon, layoutParams(dp(120), dp(120), Gravity.TOP | Gravity.CENTER_HORIZONTAL, dp(80), 0, 0));
         
-        // Set alarm label
-        if (alarmTime != null && !alarmTime.isEmpty()) {
-            alarmLabel.setText("Alarm: " + alarmTime);
-        } else {
-            alarmLabel.setText("Alarm Ringing");
-        }
+        // Current time over the alarm label, as one view so neither has to be placed below the other
+        String label = alarmTime != null && !alarmTime.isEmpty() ? "Alarm: " + alarmTime : "Alarm Ringing";
+        String time = formatTime(System.currentTimeMillis());
+        SpannableString text = new SpannableString(time + "\n" + label);
+        text.setSpan(new AbsoluteSizeSpan(48, true), 0, time.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        text.setSpan(new StyleSpan(Typeface.BOLD), 0, time.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        text.setSpan(new ForegroundColorSpan(Color.WHITE), 0, time.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        TextView display = new TextView(this);
+        display.setGravity(Gravity.CENTER_HORIZONTAL);
+        display.setTextColor(0xFFCCCCCC);
+        display.setTextSize(TypedValue.COMPLEX_UNIT_SP, 18);
+        display.setLineSpacing(dp(8), 1f);
+        display.setText(text);
+        root.addView(display, layoutParams(WRAP, WRAP, Gravity.TOP | Gravity.CENTER_HORIZONTAL, dp(240), 0, 0));
         
-        // Set button click listeners
-        stopButton.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View v) {
-                stopAlarm();
-            }
-        });
+        // Snooze and Stop side by side, 40dp apart around the centre line
+        snoozeButton = actionButton("Snooze", R.drawable.button_snooze);
+        snoozeButton.setOnClickListener(v -> snoozeAlarm(v));
+        root.addView(snoozeButton, layoutParams(dp(140), dp(60), Gravity.BOTTOM | Gravity.CENTER_HORIZONTAL,
+            0, 0, dp(180)));
         
-        snoozeButton.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View v) {
-                snoozeAlarm();
+        Button stopButton = actionButton("Stop", R.drawable.button_stop);
+        stopButton.setOnClickListener(v -> stopAlarm());
+        root.addView(stopButton, layoutParams(dp(140), dp(60), Gravity.BOTTOM | Gravity.CENTER_HORIZONTAL,
+            0, dp(180), 0));
+        
+        Log.d(TAG, "✅ UI built with stop/snooze buttons");
+        return root;
+    }
+
+    private Button actionButton(String text, int background) {
+        Button button = new Button(this);
+        button.setBackgroundResource(background);
+        button.setText(text);
+        button.setTextColor(Color.WHITE);
+        button.setTextSize(TypedValue.COMPLEX_UNIT_SP, 16);
+        button.setTypeface(Typeface.DEFAULT_BOLD);
+        return button;
+    }
+
+    private FrameLayout.LayoutParams layoutParams(int width, int height, int gravity,
+                                                  int topMargin, int leftMargin, int rightMargin) {
+        FrameLayout.LayoutParams params = new FrameLayout.LayoutParams(width, height, gravity);
+        params.topMargin = topMargin;
+        params.leftMargin = leftMargin;
+        params.rightMargin = rightMargin;
+        if ((gravity & Gravity.VERTICAL_GRAVITY_MASK) == Gravity.BOTTOM) {
+            params.bottomMargin = dp(80);
+        }
+        return params;
+    }
+
+    private int dp(int value) {
+        return Math.round(value * getResources().getDisplayMetrics().density);
+    }
+
+    /**
+     * 24-hour "HH:mm" in the device time zone, without building a SimpleDateFormat
+     */
+    private static String formatTime(long nowMs) {
+        long localMs = nowMs + TimeZone.getDefault().getOffset(nowMs);
+        int minuteOfDay = (int) ((localMs / 60000) % (24 * 60));
+        int hour = minuteOfDay / 60;
+        int minute = minuteOfDay % 60;
+        return new String(new char[] {
+            (char) ('0' + hour / 10), (char) ('0' + hour % 10), ':',
+            (char) ('0' + minute / 10), (char) ('0' + minute % 10)
+        });
+    }
+
+    /**
+     * Run once, just after the first frame has been handed to the renderer
+     */
+    private void runAfterFirstDraw(Runnable action) {
+        View decorView = getWindow().getDecorView();
+        Handler handler = new Handler(Looper.getMainLooper());
+        ViewTreeObserver.OnDrawListener[] listener = new ViewTreeObserver.OnDrawListener[1];
+        listener[0] = () -> handler.postAtFrontOfQueue(() -> {
+            // A listener can't be removed while the draw is dispatching, and may see several draws first
+            if (listener[0] != null) {
+                decorView.getViewTreeObserver().removeOnDrawListener(listener[0]);
+                listener[0] = null;
+                action.run();
             }
         });
-        
-        Log.d(TAG, "✅ UI initialized with stop/snooze buttons");
+        decorView.getViewTreeObserver().addOnDrawListener(listener[0]);
     }
 
     private void stopAlarm() {
         Log.d(TAG, "🛑 STOP button pressed - stopping alarm");
-        
-        // Stop the foreground service
-        Intent serviceIntent = new Intent(this, AlarmAudioService.class);
-        serviceIntent.setAction(AlarmAudioService.ACTION_STOP_ALARM);
-        startService(serviceIntent);
+        // Off the UI thread, in order with other work for this alarm. Alarms that
+        // fired alongside this one are dismissed with it; a double tap is a no-op.
+        Context appContext = getApplicationContext();
+        String id = alarmId;
+        AlarmReceiverWork.run(AlarmReceiverWork.ACTION_STOP, id, () -> AlarmPlayback.stop(appContext, id));
         
         // Close this activity
         finish();
     }
 
-    private void snoozeAlarm() {
-        Log.d(TAG, "😴 SNOOZE button pressed - snoozing for 5 minutes");
-        
-        // Stop current alarm
-        Intent serviceIntent = new Intent(this, AlarmAudioService.class);
-        serviceIntent.setAction(AlarmAudioService.ACTION_STOP_ALARM);
-        startService(serviceIntent);
-        
-        // Schedule snooze (5 minutes from now)
-        long snoozeTime = System.currentTimeMillis() + (5 * 60 * 1000); // 5 minutes
-        String snoozeAlarmId = alarmId + "_snooze_" + System.currentTimeMillis();
+    private void snoozeAlarm(View snoozeButton) {
+        Log.d(TAG, "😴 SNOOZE button pressed - snoozing");
+        if (AlarmPlayback.isOutOfSnoozes(alarmId)) {
+            // Out of snoozes - stay up until the user stops it
+            Toast.makeText(this, NO_SNOOZES_LEFT, Toast.LENGTH_SHORT).show();
+            snoozeButton.setEnabled(false);
+            return;
+        }
         
-        try {
-            // Use AlarmReceiver to schedule snooze
-            Intent snoozeIntent = new Intent(this, AlarmReceiver.class);
-            snoozeIntent.putExtra("alarmId", snoozeAlarmId);
-            snoozeIntent.putExtra("audioPath", audioPath);
-            snoozeIntent.putExtra("alarmTime", "Snooze");
-            
-            android.app.PendingIntent snoozePendingIntent = android.app.PendingIntent.getBroadcast(
-                this, 
-                snoozeAlarmId.hashCode(), 
-                snoozeIntent, 
-                android.app.PendingIntent.FLAG_UPDATE_CURRENT | android.app.PendingIntent.FLAG_IMMUTABLE
-            );
-            
-            android.app.AlarmManager alarmManager = (android.app.AlarmManager) getSystemService(Context.ALARM_SERVICE);
-            if (alarmManager != null) {
-                alarmManager.setExactAndAllowWhileIdle(
-                    android.app.AlarmManager.RTC_WAKEUP, 
-                    snoozeTime, 
-                    snoozePendingIntent
-                );
-                Log.d(TAG, "✅ Snooze scheduled for 5 minutes");
+        // Stops the ring and snoozes each alarm in it for the ring policy's length, off the UI thread
+        Context appContext = getApplicationContext();
+        String id = alarmId;
+        AlarmReceiverWork.run(AlarmReceiverWork.ACTION_SNOOZE, id, () -> {
+            long snoozeAt = AlarmPlayback.snooze(appContext, id);
+            if (snoozeAt == AlarmPlayback.SNOOZE_LIMIT_REACHED) {
+                // Tapped before the budget was loaded - the screen is gone, the notification still has Stop
+                new Handler(Looper.getMainLooper()).post(
+                    () -> Toast.makeText(appContext, NO_SNOOZES_LEFT, Toast.LENGTH_SHORT).show());
+                return;
             }
-            
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to schedule snooze", e);
-        }
+            Log.d(TAG, "✅ Snooze scheduled until " + snoozeAt);
+        });
         
         // Close this activity
         finish();
@@ -1,9 +1,6 @@
 package com.shakshamkarki.practice;
 
 import android.app.Notification;
-import android.app.NotificationChannel;
-import android.app.NotificationManager;
-import android.app.PendingIntent;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
@@ -11,38 +8,109 @@ import android.media.AudioAttributes;
 import android.media.AudioManager;
 import android.media.MediaPlayer;
 import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.IBinder;
-import android.os.PowerManager;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
 import android.os.Vibrator;
 import android.os.VibrationEffect;
 import android.util.Log;
 import android.content.pm.ServiceInfo;
-import androidx.core.app.NotificationCompat;
 
-import java.io.File;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.LongSupplier;
 
 /**
  * FOREGROUND SERVICE for alarm audio
  * This ensures audio continues playing even when app is completely terminated
+ *
+ * A fire runs as a staged pipeline. The main thread only does the
+ * startForeground() call Android requires within a few seconds; source
+ * resolution, player prepare and start all run in order on the
+ * "AlarmPlayback" HandlerThread, which also owns every player field below.
+ *
+ * What is ringing is owned by AlarmPlayback; this service only executes its
+ * transitions. Every stage checks the ring generation it was started for, so
+ * a stop or a newer ring that got in first turns it into a no-op.
  */
 public class AlarmAudioService extends Service {
     private static final String TAG = "AlarmAudioService";
-    private static final String CHANNEL_ID = "alarm_audio_service";
     private static final int NOTIFICATION_ID = 99999; // Unique ID to avoid conflicts
     
     public static final String ACTION_START_ALARM = "START_ALARM";
     public static final String ACTION_STOP_ALARM = "STOP_ALARM";
     public static final String EXTRA_AUDIO_PATH = "audio_path";
     public static final String EXTRA_ALARM_ID = "alarm_id";
+    public static final String EXTRA_METRICS_SEQ = "metrics_seq";
+    /** Alarm whose ring policy applies - the parent for a snooze */
+    public static final String EXTRA_POLICY_ID = "policy_id";
+    /** Ring a STOP is for - stale stops are ignored */
+    public static final String EXTRA_GENERATION = "generation";
+    public static final String EXTRA_POLICY_IDS = "policy_ids";
+    /** startAndAwait request to report first audio for, and when it was sent (elapsedRealtime) */
+    public static final String EXTRA_START_REQUEST = "start_request";
+    public static final String EXTRA_REQUESTED_AT = "requested_at";
+
+    private static final long FIRST_FRAME_POLL_MS = 5;
+    private static final long FIRST_FRAME_TIMEOUT_MS = 3000;
+
+    // One per process: pooled players keep delivering callbacks to the looper they were prepared on
+    private static HandlerThread playbackThread;
+    private static Handler playbackHandler;
     
     private MediaPlayer mediaPlayer;
+    private PcmAlarmPlayer pcmPlayer;
+    /** Whether mediaPlayer still plays currentAudioPath and can go back to the pool */
+    private boolean playerRecyclable;
+    private long playerPrepareMs;
+    private long prepareStartedAt;
     private Vibrator vibrator;
-    private PowerManager.WakeLock wakeLock;
+    // Alarm whose ringing wake lock this service holds - touched from main and playback threads
+    private boolean ringingWakeLockHeld;
+    private String ringingWakeLockId;
     private String currentAlarmId;
     private String currentAudioPath;
+    /** AlarmPlayback generation the players belong to; 0 when nothing plays */
+    private long ringGeneration;
+    // Start requests waiting for this ring's first audio frame, as {requestId, requestedAt}
+    private final List<long[]> pendingStarts = new ArrayList<>();
+    /** When this ring's first frame went out; 0 until then */
+    private long firstAudioAt;
+    private String audioSource;
+    private long metricsSeq;
+
+    // Ring policy of the current alarm; one pending timer drives escalation and the end of the ring
+    private AlarmRingPolicy ringPolicy;
+    private String policyId;
+    private long ringStartedAt;
+    private boolean escalated;
+    private final Runnable policyTimer = this::onPolicyTimer;
+
+    private static synchronized Handler playbackHandler() {
+        if (playbackHandler == null) {
+            playbackThread = new HandlerThread("AlarmPlayback", Process.THREAD_PRIORITY_AUDIO);
+            playbackThread.start();
+            playbackHandler = new Handler(playbackThread.getLooper());
+        }
+        return playbackHandler;
+    }
+
+    /**
+     * Run on the playback thread - inline if already there. Players handed over
+     * by the warm-up deliver their callbacks on other loopers.
+     */
+    private void onPipeline(Runnable stage) {
+        Handler handler = playbackHandler();
+        if (Looper.myLooper() == handler.getLooper()) {
+            stage.run();
+        } else {
+            handler.post(stage);
+        }
+    }
 
     @Override
     public void onCreate() {
@@ -50,15 +118,13 @@ public class AlarmAudioService extends Service {
         Log.d(TAG, "🚨🚨🚨 UNLIMITED ALARM SERVICE CREATED 🚨🚨🚨");
         Log.d(TAG, "🔓 Initializing UNLIMITED alarm access system");
         
-        // Ensure unlimited alarm access
-        BatteryOptimizationHelper.ensureUnlimitedAlarmAccess(this);
-        
-        // Acquire UNLIMITED wake lock to prevent device from sleeping during alarm
-        PowerManager powerManager = (PowerManager) getSystemService(POWER_SERVICE);
-        wakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "AlarmApp:UnlimitedAlarmWakeLock");
-        wakeLock.acquire(); // UNLIMITED - No timeout for alarm wake lock
-        Log.d(TAG, "🔋 UNLIMITED wake lock acquired - device will NEVER sleep during alarm");
-        Log.d(TAG, "♾️ Service configured for INFINITE alarm playback");
+        // Ensure unlimited alarm access (status logging only - kept off the fire's critical path)
+        playbackHandler().post(() -> BatteryOptimizationHelper.ensureUnlimitedAlarmAccess(this));
+        playbackHandler().post(() -> AlarmPlayback.getCoalesceWindowMs(this));
+        // A new service means the previous process or instance is gone - nothing of it still rings
+        playbackHandler().post(() -> AlarmPlayback.publishRinging(this));
+        // No wake lock here: a START_STICKY restart with a null intent must not keep
+        // the CPU up. Each START takes a bounded ringing hold instead.
     }
 
     @Override
@@ -80,11 +146,79 @@ public class AlarmAudioService extends Service {
         if (ACTION_START_ALARM.equals(action)) {
             String audioPath = intent.getStringExtra(EXTRA_AUDIO_PATH);
             String alarmId = intent.getStringExtra(EXTRA_ALARM_ID);
+            String policyAlarmId = intent.getStringExtra(EXTRA_POLICY_ID);
+            long seq = intent.getLongExtra(EXTRA_METRICS_SEQ, 0);
+            long startRequest = intent.getLongExtra(EXTRA_START_REQUEST, 0);
+            long requestedAt = intent.getLongExtra(EXTRA_REQUESTED_AT, 0);
+            long serviceStartAt = SystemClock.elapsedRealtime();
             Log.d(TAG, "🔊 STARTING MAXIMUM PERSISTENCE ALARM");
-            startAlarmAudio(audioPath, alarmId);
+            AlarmPlayback.Ring joined = AlarmPlayback.tryJoin(alarmId, policyAlarmId, audioPath, serviceStartAt);
+            if (joined != null) {
+                // Fire storm: ride along with the alarm already ringing - no new player
+                Log.d(TAG, "🤝 " + alarmId + " joined the ringing session of " + joined.primaryId());
+                // Every startForegroundService() needs its startForeground(); same notification as before
+                promoteToForeground(joined.primaryId(), joined.primaryAudioPath);
+                long foregroundAt = SystemClock.elapsedRealtime();
+                AlarmWakeLocks.release(AlarmWakeLocks.REASON_FIRE, alarmId);
+                playbackHandler().post(() -> {
+                    AlarmMetrics.mark(this, seq, AlarmMetrics.STAGE_SERVICE_START, serviceStartAt);
+                    AlarmMetrics.mark(this, seq, AlarmMetrics.STAGE_FOREGROUND, foregroundAt);
+                    // Joined after the first sound - the ring's own report didn't include it
+                    if (joined.state == AlarmPlayback.State.RINGING) {
+                        AlarmEvents.record(this, AlarmEvents.AUDIO_STARTED, alarmId);
+                    }
+                    awaitFirstAudio(joined.generation, startRequest, requestedAt);
+                });
+                return START_STICKY;
+            }
+            AlarmPlayback.Ring ring = AlarmPlayback.begin(alarmId, policyAlarmId, audioPath, serviceStartAt,
+                replaced -> playbackHandler().post(() -> reportReplaced(replaced)));
+
+            // Stage 1 (main thread): foreground promotion
+            promoteToForeground(alarmId, audioPath);
+            long foregroundAt = SystemClock.elapsedRealtime();
+            Log.d(TAG, "⏱️ startForeground " + (foregroundAt - serviceStartAt) + "ms after onStartCommand");
+            holdRingingWakeLock(alarmId);
+
+            // Stages 2-4 (playback thread): source resolution, prepare, start
+            playbackHandler().post(() -> {
+                metricsSeq = seq;
+                AlarmMetrics.mark(this, seq, AlarmMetrics.STAGE_SERVICE_START, serviceStartAt);
+                AlarmMetrics.mark(this, seq, AlarmMetrics.STAGE_FOREGROUND, foregroundAt);
+                AlarmPlayback.publishRinging(this);
+                AlarmPlayback.Ring now = AlarmPlayback.current();
+                if (now.generation != ring.generation || now.state == AlarmPlayback.State.STOPPING) {
+                    // Stopped or replaced before the pipeline got to it - never build a player,
+                    // and don't leave the ring this one replaced playing either
+                    Log.d(TAG, "⏭️ Ring " + ring.generation + " ended before playback started");
+                    if (ringGeneration != 0) {
+                        stopExistingAudio();
+                        ringGeneration = 0;
+                    }
+                    releaseRingingWakeLock(alarmId);
+                    if (startRequest != 0) {
+                        AlarmPlayback.reportStartFailure(this, startRequest, "STOPPED",
+                            "Alarm was stopped before audio started");
+                    }
+                    return;
+                }
+                startAlarmAudio(ring.generation, audioPath, alarmId, startRequest, requestedAt);
+                startRingPolicy(policyAlarmId != null ? policyAlarmId : alarmId);
+            });
         } else if (ACTION_STOP_ALARM.equals(action)) {
             Log.d(TAG, "🛑 EXPLICIT STOP requested - User action");
-            stopAlarmAudio();
+            long generation = intent.getLongExtra(EXTRA_GENERATION, 0);
+            String[] policyIds = intent.getStringArrayExtra(EXTRA_POLICY_IDS);
+            // Queued behind any start still in flight
+            playbackHandler().post(() -> {
+                // The user answered - unattended rings start counting from zero again
+                if (policyIds != null) {
+                    for (String memberPolicyId : policyIds) {
+                        AlarmRingPolicy.resetAutoSnoozes(this, memberPolicyId);
+                    }
+                }
+                stopAlarmAudio(generation);
+            });
         } else {
             Log.d(TAG, "⚠️ Unknown action - keeping service alive: " + action);
         }
@@ -94,32 +228,59 @@ public class AlarmAudioService extends Service {
         return START_STICKY;
     }
 
-    private void startAlarmAudio(String audioPath, String alarmId) {
+    /**
+     * The one thing a fire does on the main thread. AlarmFirePathStrictModeTest
+     * fails on any disk access here, so I/O can't creep back ahead of
+     * startForeground().
+     */
+    private void promoteToForeground(String alarmId, String audioPath) {
+        try {
+            Notification hiddenNotification = foregroundNotification(this, alarmId, audioPath);
+
+            // Start foreground service with hidden notification
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                startForeground(NOTIFICATION_ID, hiddenNotification, ServiceInfo.FOREGROUND_SERVICE_TYPE_MEDIA_PLAYBACK);
+            } else {
+                startForeground(NOTIFICATION_ID, hiddenNotification);
+            }
+            Log.d(TAG, "🔇 HIDDEN SERVICE: Minimal notification for compliance - Android system notification is the visible one");
+        } catch (Exception e) {
+            Log.e(TAG, "🚨 CRITICAL: Failed to promote alarm service to foreground", e);
+        }
+    }
+
+    /**
+     * Channel checked and notification built by the warm-up or AlarmReceiver,
+     * both off the main thread
+     */
+    private static Notification foregroundNotification(Context context, String alarmId, String audioPath) {
+        AlarmNotifications.ensureChannelsForFire(context);
+        return AlarmNotifications.forAlarm(context, alarmId, audioPath);
+    }
+
+    /**
+     * Stage 2 (playback thread): resolve the source - PCM cache, pooled player
+     * or a cold MediaPlayer - then hand off to prepare/start
+     */
+    private void startAlarmAudio(long generation, String audioPath, String alarmId, long startRequest,
+                                 long requestedAt) {
         try {
             Log.d(TAG, "🔊🔊🔊 FOREGROUND SERVICE: Starting PERSISTENT alarm audio 🔊🔊🔊");
             
-            // CRITICAL: Stop any existing alarm first to prevent duplicates
-            if (mediaPlayer != null && mediaPlayer.isPlaying()) {
+            // CRITICAL: Stop any existing alarm first - playing or still preparing - to prevent duplicates
+            if (mediaPlayer != null || pcmPlayer != null) {
                 Log.d(TAG, "🛑 Stopping existing alarm to prevent duplicate notifications");
                 stopExistingAudio();
             }
             
+            ringGeneration = generation;
             currentAlarmId = alarmId;
             currentAudioPath = audioPath;
-            
-            // Create minimal hidden notification for foreground service compliance
-            createMinimalNotificationChannel();
-            Notification hiddenNotification = createHiddenNotification();
-            
-            // Start foreground service with hidden notification
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-                startForeground(NOTIFICATION_ID, hiddenNotification, ServiceInfo.FOREGROUND_SERVICE_TYPE_MEDIA_PLAYBACK);
-            } else {
-                startForeground(NOTIFICATION_ID, hiddenNotification);
+            firstAudioAt = 0;
+            if (startRequest != 0) {
+                pendingStarts.add(new long[]{startRequest, requestedAt});
             }
             
-            Log.d(TAG, "🔇 HIDDEN SERVICE: Minimal notification for compliance - Android system notification is the visible one");
-            
             // FORCE MAXIMUM VOLUME
             AudioManager audioManager = (AudioManager) getSystemService(Context.AUDIO_SERVICE);
             if (audioManager != null) {
@@ -132,118 +293,441 @@ public class AlarmAudioService extends Service {
             // Start vibration
             startVibration();
             
-            // Create and configure MediaPlayer
-            mediaPlayer = new MediaPlayer();
-            
-            AudioAttributes audioAttributes = new AudioAttributes.Builder()
-                .setUsage(AudioAttributes.USAGE_ALARM)
-                .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
-                .setFlags(AudioAttributes.FLAG_AUDIBILITY_ENFORCED)
-                .build();
-            
-            mediaPlayer.setAudioAttributes(audioAttributes);
-            
-            // Set audio source with fallback
-            boolean customAudioSet = false;
-            if (audioPath != null && !audioPath.isEmpty()) {
-                try {
-                    String actualPath = convertToActualPath(audioPath);
-                    File audioFile = new File(actualPath);
-                    
-                    Log.d(TAG, "🎵 Checking custom audio: " + actualPath);
-                    Log.d(TAG, "📁 File exists: " + audioFile.exists());
-                    
-                    if (audioFile.exists() && audioFile.length() > 0) {
-                        Log.d(TAG, "✅ Using custom audio: " + actualPath);
-                        mediaPlayer.setDataSource(actualPath);
-                        customAudioSet = true;
-                    }
-                } catch (Exception e) {
-                    Log.e(TAG, "Custom audio failed", e);
-                }
+            // Fastest path: decoded PCM cache streamed straight to an AudioTrack
+            if (startPcmPlayback(audioPath)) {
+                return;
             }
+
+            // Reuse a prepared player (pre-fire warm-up, or this recording's last ring/snooze)
+            AlarmPlayerPool.Lease pooled = AlarmPlayerPool.get(this).acquire(audioPath);
+            if (pooled != null) {
+                mediaPlayer = pooled.player;
+                playerPrepareMs = pooled.prepareMs;
+                playerRecyclable = true;
+                audioSource = "pooled";
+                Log.d(TAG, "⚡ Pooled player: skipped ~" + pooled.prepareMs + "ms of load/prepare before first sound");
+            } else {
+                mediaPlayer = newAlarmPlayer();
+                
+                // Set audio source with fallback
+                boolean customAudioSet = AlarmAudioSource.setDataSource(this, mediaPlayer, audioPath);
+                if (customAudioSet) {
+                    Log.d(TAG, "✅ Using custom audio: " + audioPath);
+                }
+                playerRecyclable = customAudioSet;
+                audioSource = customAudioSet ? "cold" : "default";
             
-            if (!customAudioSet) {
-                Log.d(TAG, "🔔 Using default alarm sound");
-                setDefaultAlarmSound();
+                if (!customAudioSet) {
+                    Log.d(TAG, "🔔 Using default alarm sound");
+                    setDefaultAlarmSound();
+                }
             }
             
-            // Configure UNLIMITED looping and maximum volume
-            mediaPlayer.setLooping(true); // INFINITE loop until explicitly stopped
-            mediaPlayer.setVolume(1.0f, 1.0f); // Maximum volume
+            configurePlayer(mediaPlayer);
             
-            mediaPlayer.setOnPreparedListener(mp -> {
-                Log.d(TAG, "🎵 FOREGROUND SERVICE: Audio prepared, MAXIMUM PERSISTENCE playback");
-                mp.start();
-                Log.d(TAG, "✅✅✅ PERSISTENT ALARM AUDIO - INDEPENDENT OF APP LIFECYCLE ✅✅✅");
-                Log.d(TAG, "🔥 Audio will continue even if app is FORCE CLOSED!");
-            });
+            // Stage 3: prepare (skipped for a pooled player)
+            if (pooled != null) {
+                onPlayerPrepared(mediaPlayer);
+            } else {
+                prepareStartedAt = SystemClock.elapsedRealtime();
+                mediaPlayer.prepareAsync();
+            }
             
-            mediaPlayer.setOnErrorListener((mp, what, extra) -> {
-                Log.e(TAG, "MediaPlayer error: " + what + ", " + extra + " - RECOVERING AUTOMATICALLY");
+        } catch (Exception e) {
+            Log.e(TAG, "🚨 CRITICAL: Failed to start alarm audio service", e);
+            failPendingStarts("START_FAILED", e.getMessage());
+        }
+    }
+
+    /**
+     * A MediaPlayer for alarm audio, created on the calling thread so its
+     * callbacks arrive on that thread's looper
+     */
+    private MediaPlayer newAlarmPlayer() {
+        MediaPlayer player = new MediaPlayer();
+        player.setAudioAttributes(new AudioAttributes.Builder()
+            .setUsage(AudioAttributes.USAGE_ALARM)
+            .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+            .setFlags(AudioAttributes.FLAG_AUDIBILITY_ENFORCED)
+            .build());
+        return player;
+    }
+
+    private void configurePlayer(MediaPlayer player) {
+        // Loops until stopped, or until the ring policy ends it
+        player.setLooping(true);
+        player.setVolume(1.0f, 1.0f); // Maximum volume
+        
+        player.setOnPreparedListener(mp -> onPipeline(() -> onPlayerPrepared(mp)));
+        
+        player.setOnErrorListener((mp, what, extra) -> {
+            Log.e(TAG, "MediaPlayer error: " + what + ", " + extra + " - RECOVERING AUTOMATICALLY");
+            onPipeline(() -> {
+                if (mp != mediaPlayer) {
+                    return; // Already stopped or replaced
+                }
                 try {
                     Log.d(TAG, "🔄 Auto-recovery: Switching to default alarm sound");
+                    playerRecyclable = false;
                     mp.reset();
                     setDefaultAlarmSound();
                     mp.prepareAsync();
                     Log.d(TAG, "✅ Recovery successful - alarm continues playing");
                 } catch (Exception e) {
                     Log.e(TAG, "Failed to recover from error", e);
+                    failPendingStarts("PLAYER_ERROR", "MediaPlayer error " + what + "/" + extra
+                        + " and the default sound failed too: " + e.getMessage());
                 }
-                return true; // Error handled, don't crash
             });
-            
-            mediaPlayer.setOnCompletionListener(mp -> {
-                Log.d(TAG, "🔄 Audio completed - restarting for continuous play");
-                // This shouldn't happen with looping, but just in case
-                if (mp.isPlaying() == false) {
-                    try {
-                        mp.start();
-                        Log.d(TAG, "✅ Audio restarted successfully");
-                    } catch (Exception e) {
-                        Log.e(TAG, "Failed to restart audio", e);
-                    }
+            return true; // Error handled, don't crash
+        });
+        
+        player.setOnCompletionListener(mp -> onPipeline(() -> {
+            if (mp != mediaPlayer) {
+                return;
+            }
+            Log.d(TAG, "🔄 Audio completed - restarting for continuous play");
+            // This shouldn't happen with looping, but just in case
+            if (mp.isPlaying() == false) {
+                try {
+                    mp.start();
+                    Log.d(TAG, "✅ Audio restarted successfully");
+                } catch (Exception e) {
+                    Log.e(TAG, "Failed to restart audio", e);
                 }
-            });
-            
-            mediaPlayer.prepareAsync();
-            
+            }
+        }));
+    }
+
+    /**
+     * Play the recording from the PCM cache if it has been decoded
+     * @return false when there is no cache entry or the AudioTrack can't start
+     */
+    private boolean startPcmPlayback(String audioPath) {
+        AlarmPcmCache.Info pcm = AlarmPcmCache.lookup(this, audioPath);
+        if (pcm == null) {
+            return false;
+        }
+        try {
+            long start = SystemClock.elapsedRealtime();
+            PcmAlarmPlayer player = PcmAlarmPlayer.open(pcm);
+            AlarmMetrics.mark(this, metricsSeq, AlarmMetrics.STAGE_PREPARED);
+            pcmPlayer = player;
+            AlarmPlayback.Ring ring = AlarmPlayback.markRinging(ringGeneration);
+            if (ring == null) {
+                return true; // Stop already queued - it releases the track
+            }
+            player.start();
+            audioSource = "pcm";
+            watchFirstFrame(player, player::getPlaybackHeadPosition, metricsSeq);
+            reportAudioStarted(ring);
+
+            AlarmWarmup.releaseWakeLock();
+            Log.d(TAG, "⚡ PCM playback started in " + (SystemClock.elapsedRealtime() - start) + "ms ("
+                + pcm.sampleRate + "Hz x" + pcm.channelCount + ", gapless loop)");
+            return true;
         } catch (Exception e) {
-            Log.e(TAG, "🚨 CRITICAL: Failed to start alarm audio service", e);
+            Log.e(TAG, "PCM playback failed - falling back to MediaPlayer", e);
+            return false;
         }
     }
 
-    private void stopExistingAudio() {
-        if (mediaPlayer != null) {
-            try {
-                if (mediaPlayer.isPlaying()) {
-                    mediaPlayer.stop();
+    /**
+     * First sound of a ring. Alarms that joined while the player was preparing start with it.
+     */
+    private void reportAudioStarted(AlarmPlayback.Ring ring) {
+        for (String alarmId : ring.alarmIds) {
+            AlarmEvents.record(this, AlarmEvents.AUDIO_STARTED, alarmId);
+        }
+    }
+
+    /**
+     * A new fire cut this ring off before anyone answered it - JS hears it ended unattended
+     */
+    private void reportReplaced(AlarmPlayback.Ring replaced) {
+        AlarmPlayback.publishRinging(this);
+        for (String alarmId : replaced.alarmIds) {
+            AlarmEvents.record(this, AlarmEvents.MISSED, alarmId);
+        }
+    }
+
+    /**
+     * Stage 4 (playback thread): start
+     */
+    private void onPlayerPrepared(MediaPlayer mp) {
+        if (mp != mediaPlayer) {
+            return; // Stopped while preparing
+        }
+        Log.d(TAG, "🎵 FOREGROUND SERVICE: Audio prepared, MAXIMUM PERSISTENCE playback");
+        AlarmMetrics.mark(this, metricsSeq, AlarmMetrics.STAGE_PREPARED);
+        if (prepareStartedAt != 0) {
+            playerPrepareMs = SystemClock.elapsedRealtime() - prepareStartedAt;
+            prepareStartedAt = 0;
+        }
+        // Error recovery and escalation re-prepare within a ring - only its first start is news
+        boolean firstStart = AlarmPlayback.current().state == AlarmPlayback.State.PREPARING;
+        AlarmPlayback.Ring ring = AlarmPlayback.markRinging(ringGeneration);
+        if (ring == null) {
+            return; // Stop already queued - it releases the player
+        }
+        mp.start();
+        AlarmWarmup.releaseWakeLock();
+        watchFirstFrame(mp, mp::getCurrentPosition, metricsSeq);
+        if (firstStart) {
+            reportAudioStarted(ring);
+        }
+        Log.d(TAG, "✅✅✅ PERSISTENT ALARM AUDIO - INDEPENDENT OF APP LIFECYCLE ✅✅✅");
+        Log.d(TAG, "🔥 Audio will continue even if app is FORCE CLOSED!");
+    }
+
+    /**
+     * start() returns before audio reaches the mixer; the first frame is out
+     * once the playback position moves. Polled briefly on the playback thread.
+     */
+    private void watchFirstFrame(Object player, LongSupplier position, long seq) {
+        if (seq <= 0 && pendingStarts.isEmpty()) {
+            return;
+        }
+        Handler handler = playbackHandler();
+        long deadline = SystemClock.elapsedRealtime() + FIRST_FRAME_TIMEOUT_MS;
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (player != mediaPlayer && player != pcmPlayer) {
+                        return; // Stopped or replaced
+                    }
+                    if (position.getAsLong() > 0) {
+                        if (seq > 0) {
+                            AlarmMetrics.mark(AlarmAudioService.this, seq, AlarmMetrics.STAGE_FIRST_FRAME);
+                        }
+                        onFirstAudio();
+                        return;
+                    }
+                } catch (IllegalStateException e) {
+                    return; // Released while polling
+                }
+                if (SystemClock.elapsedRealtime() < deadline) {
+                    handler.postDelayed(this, FIRST_FRAME_POLL_MS);
+                } else {
+                    failPendingStarts("NO_AUDIO", "Player started but no audio frame came out within "
+                        + FIRST_FRAME_TIMEOUT_MS + "ms");
                 }
-                mediaPlayer.release();
-            } catch (Exception e) {
-                Log.w(TAG, "Error stopping existing audio", e);
             }
-            mediaPlayer = null;
+        });
+    }
+
+    private void onFirstAudio() {
+        if (firstAudioAt == 0) {
+            firstAudioAt = SystemClock.elapsedRealtime();
+        }
+        for (long[] request : pendingStarts) {
+            AlarmPlayback.reportFirstAudio(this, request[0], firstAudioAt - request[1], audioSource);
+        }
+        pendingStarts.clear();
+    }
+
+    /**
+     * Track a start request that joined this ring rather than starting it
+     */
+    private void awaitFirstAudio(long generation, long startRequest, long requestedAt) {
+        if (startRequest == 0) {
+            return;
+        }
+        if (generation != ringGeneration) {
+            AlarmPlayback.reportStartFailure(this, startRequest, "STOPPED", "Alarm was stopped before audio started");
+        } else if (firstAudioAt != 0) {
+            // Already audible - the request had nothing left to wait for
+            AlarmPlayback.reportFirstAudio(this, startRequest, SystemClock.elapsedRealtime() - requestedAt, audioSource);
+        } else {
+            pendingStarts.add(new long[]{startRequest, requestedAt});
+        }
+    }
+
+    private void failPendingStarts(String code, String message) {
+        for (long[] request : pendingStarts) {
+            AlarmPlayback.reportStartFailure(this, request[0], code, message);
         }
+        pendingStarts.clear();
+    }
+
+    private void stopExistingAudio() {
+        cancelRingPolicy();
+        failPendingStarts("STOPPED", "Alarm was stopped before audio started");
+        releasePlayers();
         
         if (vibrator != null) {
             vibrator.cancel();
         }
     }
 
-    private void stopAlarmAudio() {
+    private void releasePlayers() {
+        if (mediaPlayer != null) {
+            if (playerRecyclable && currentAudioPath != null) {
+                // Keeps the decoder set up for a snooze re-fire of the same recording
+                AlarmPlayerPool.get(this).recycle(currentAudioPath, mediaPlayer, playerPrepareMs);
+            } else {
+                try {
+                    if (mediaPlayer.isPlaying()) {
+                        mediaPlayer.stop();
+                    }
+                    mediaPlayer.release();
+                } catch (Exception e) {
+                    Log.w(TAG, "Error stopping existing audio", e);
+                }
+            }
+            mediaPlayer = null;
+            playerRecyclable = false;
+            prepareStartedAt = 0;
+        }
+        if (pcmPlayer != null) {
+            pcmPlayer.release();
+            pcmPlayer = null;
+        }
+    }
+
+    private void startRingPolicy(String policyAlarmId) {
+        cancelRingPolicy();
+        policyId = policyAlarmId;
+        ringPolicy = AlarmRingPolicy.forAlarm(this, policyAlarmId);
+        ringStartedAt = SystemClock.elapsedRealtime();
+        escalated = false;
+        armPolicyTimer();
+        Log.d(TAG, "⏳ Ring policy for " + currentAlarmId + ": " + ringPolicy.toJson());
+    }
+
+    private void cancelRingPolicy() {
+        playbackHandler().removeCallbacks(policyTimer);
+        ringPolicy = null;
+    }
+
+    /**
+     * One pending timer per ring: the escalation if it's still to come, else the end
+     */
+    private void armPolicyTimer() {
+        long dueAfter = !escalated && ringPolicy.escalateAfterMs > 0 ? ringPolicy.escalateAfterMs : ringPolicy.maxRingMs;
+        long delay = Math.max(0, ringStartedAt + dueAfter - SystemClock.elapsedRealtime());
+        playbackHandler().postDelayed(policyTimer, delay);
+    }
+
+    private void onPolicyTimer() {
+        if (ringPolicy == null) {
+            return;
+        }
+        if (!escalated && ringPolicy.escalateAfterMs > 0) {
+            escalated = true;
+            escalateToDefaultSound();
+            armPolicyTimer();
+            return;
+        }
+        endUnattendedRing();
+    }
+
+    /**
+     * Swap the recording for the system alarm sound, keeping vibration going
+     */
+    private void escalateToDefaultSound() {
+        Log.d(TAG, "📈 " + currentAlarmId + " unanswered - escalating to the default alarm sound");
+        try {
+            releasePlayers();
+            mediaPlayer = newAlarmPlayer();
+            audioSource = "default";
+            setDefaultAlarmSound();
+            configurePlayer(mediaPlayer);
+            mediaPlayer.prepareAsync();
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to escalate alarm sound", e);
+        }
+    }
+
+    /**
+     * Max ring time reached: auto-snooze while the policy allows, otherwise
+     * dismiss. Either way the ring is reported missed and everything it held
+     * is released.
+     */
+    private void endUnattendedRing() {
+        String alarmId = currentAlarmId;
+        AlarmRingPolicy policy = ringPolicy;
+        long generation = ringGeneration;
+        AlarmPlayback.Ring ring = AlarmPlayback.beginStop(generation);
+        if (ring == null) {
+            return; // The user's stop or snooze got there first
+        }
+        AlarmPlayback.publishRinging(this);
+        try {
+            // The first alarm's policy decides for the whole session
+            if (AlarmRingPolicy.takeAutoSnooze(this, policyId, policy)) {
+                AlarmSnooze.scheduleRing(this, ring, System.currentTimeMillis() + policy.snoozeMs);
+                Log.d(TAG, "😴 " + alarmId + " rang " + policy.maxRingMs + "ms unanswered - auto-snoozed");
+            } else {
+                // Nothing will re-fire this recording soon - don't park a decoder for it
+                playerRecyclable = false;
+                for (String memberPolicyId : ring.policyIds) {
+                    AlarmRingPolicy.resetSnoozes(this, memberPolicyId);
+                }
+                Log.d(TAG, "🔕 " + alarmId + " rang " + policy.maxRingMs + "ms unanswered - auto-dismissed");
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to apply ring policy for " + alarmId, e);
+        }
+        for (String memberId : ring.alarmIds) {
+            AlarmEvents.record(this, AlarmEvents.MISSED, memberId);
+        }
+        stopAlarmAudio(generation);
+    }
+
+    /**
+     * STOPPING -> IDLE for this ring (playback thread). A stop for a ring that
+     * is no longer playing releases nothing; the service only goes once
+     * nothing rings.
+     */
+    private void stopAlarmAudio(long generation) {
         Log.d(TAG, "🛑 Stopping alarm audio service");
         
-        stopExistingAudio();
-        
-        if (wakeLock != null && wakeLock.isHeld()) {
-            wakeLock.release();
+        if (generation == ringGeneration) {
+            stopExistingAudio();
+            releaseRingingWakeLock(currentAlarmId);
+            ringGeneration = 0;
+        }
+        boolean idle = AlarmPlayback.finish(generation);
+        AlarmPlayback.publishRinging(this);
+        if (!idle) {
+            Log.d(TAG, "⏭️ Ring " + AlarmPlayback.current().generation + " started since - keeping the service");
+            return;
         }
-        
         stopForeground(true);
         stopSelf();
     }
 
+    /**
+     * Take the bounded ringing hold for this alarm, then let go of the
+     * receiver's hand-off hold
+     */
+    private synchronized void holdRingingWakeLock(String alarmId) {
+        releaseRingingWakeLock();
+        AlarmWakeLocks.acquire(this, AlarmWakeLocks.REASON_RINGING, alarmId, AlarmWakeLocks.RINGING_MAX_MS);
+        ringingWakeLockHeld = true;
+        ringingWakeLockId = alarmId;
+        AlarmWakeLocks.release(AlarmWakeLocks.REASON_FIRE, alarmId);
+    }
+
+    /**
+     * Drop the ringing hold if it still belongs to this alarm
+     */
+    private synchronized void releaseRingingWakeLock(String alarmId) {
+        if (Objects.equals(ringingWakeLockId, alarmId)) {
+            releaseRingingWakeLock();
+        }
+    }
+
+    private synchronized void releaseRingingWakeLock() {
+        if (ringingWakeLockHeld) {
+            AlarmWakeLocks.release(AlarmWakeLocks.REASON_RINGING, ringingWakeLockId);
+            ringingWakeLockHeld = false;
+            ringingWakeLockId = null;
+        }
+    }
+
     private void startVibration() {
         try {
             vibrator = (Vibrator) getSystemService(Context.VIBRATOR_SERVICE);
@@ -278,155 +762,6 @@ public class AlarmAudioService extends Service {
         }
     }
 
-    private String convertToActualPath(String reactNativeUri) {
-        if (reactNativeUri == null || reactNativeUri.isEmpty()) {
-            return reactNativeUri;
-        }
-        
-        if (reactNativeUri.startsWith("file://")) {
-            return reactNativeUri.substring(7);
-        }
-        
-        return reactNativeUri;
-    }
-
-    private void createMinimalNotificationChannel() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            NotificationChannel channel = new NotificationChannel(
-                CHANNEL_ID,
-                "Background Service",
-                NotificationManager.IMPORTANCE_MIN // Minimal importance - almost invisible
-            );
-            channel.setDescription("Background audio service");
-            channel.setSound(null, null); // No sound
-            channel.setShowBadge(false); // No badge
-            channel.setLightColor(0); // No light
-            channel.setVibrationPattern(null); // No vibration
-            channel.enableLights(false); // No lights
-            channel.enableVibration(false); // No vibration
-            channel.setLockscreenVisibility(NotificationCompat.VISIBILITY_SECRET); // Hidden on lock screen
-            
-            NotificationManager notificationManager = getSystemService(NotificationManager.class);
-            // Delete any existing channels first
-            try {
-                notificationManager.deleteNotificationChannel(CHANNEL_ID);
-            } catch (Exception e) {
-                // Ignore deletion errors
-            }
-            notificationManager.createNotificationChannel(channel);
-            Log.d(TAG, "🔇 Minimal hidden notification channel created");
-        }
-    }
-
-    private Notification createHiddenNotification() {
-        // Create THE ONLY notification that will appear - exactly as user wants
-        return new NotificationCompat.Builder(this, CHANNEL_ID)
-            .setContentTitle("Silent") // Matches user's screenshot exactly
-            .setContentText("") // No text content
-            .setSmallIcon(android.R.drawable.ic_media_play) // Play button icon
-            .setPriority(NotificationCompat.PRIORITY_MIN) // Minimal priority
-            .setCategory(NotificationCompat.CATEGORY_SERVICE) // Service category
-            .setOngoing(false) // Can be dismissed
-            .setAutoCancel(true) // Auto dismiss
-            .setShowWhen(false) // No timestamp
-            .setSilent(true) // Silent notification
-            .build();
-    }
-
-    private Notification createProfessionalAlarmNotification(String alarmId) {
-        // Create dismiss action - stops the alarm completely
-        Intent dismissIntent = new Intent(this, AlarmAudioService.class);
-        dismissIntent.setAction(ACTION_STOP_ALARM);
-        PendingIntent dismissPendingIntent = PendingIntent.getService(
-            this, 1, dismissIntent, PendingIntent.FLAG_IMMUTABLE);
-
-        // Create snooze action
-        Intent snoozeIntent = new Intent(this, AlarmActionReceiver.class);
-        snoozeIntent.setAction("SNOOZE");
-        snoozeIntent.putExtra("alarmId", alarmId);
-        snoozeIntent.putExtra("audioPath", currentAudioPath != null ? currentAudioPath : "");
-        PendingIntent snoozePendingIntent = PendingIntent.getBroadcast(
-            this, 2, snoozeIntent, PendingIntent.FLAG_IMMUTABLE);
-
-        // Create tap action - opens alarm activity
-        Intent tapIntent = new Intent(this, AlarmActivity.class);
-        tapIntent.putExtra(AlarmActivity.EXTRA_ALARM_ID, alarmId);
-        tapIntent.putExtra(AlarmActivity.EXTRA_ALARM_TIME, "Alarm Ringing");
-        tapIntent.putExtra(AlarmActivity.EXTRA_AUDIO_PATH, currentAudioPath != null ? currentAudioPath : "");
-        tapIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
-        PendingIntent tapPendingIntent = PendingIntent.getActivity(
-            this, 3, tapIntent, PendingIntent.FLAG_IMMUTABLE);
-
-        return new NotificationCompat.Builder(this, CHANNEL_ID)
-            .setContentTitle("Alarm Ringing")
-            .setContentText("Your custom alarm is playing")
-            .setSmallIcon(android.R.drawable.ic_lock_idle_alarm)
-            .setPriority(NotificationCompat.PRIORITY_MAX) // Maximum priority
-            .setCategory(NotificationCompat.CATEGORY_CALL) // Call category - avoids system alarm triggers
-            .setOngoing(true) // Cannot be swiped away
-            .setAutoCancel(false) // Cannot be auto-dismissed
-            .setShowWhen(true) // Show timestamp
-            .setWhen(System.currentTimeMillis()) // Current time
-            .setContentIntent(tapPendingIntent) // Tap to open alarm screen
-            .addAction(android.R.drawable.ic_media_pause, "Dismiss", dismissPendingIntent)
-            .addAction(android.R.drawable.ic_menu_recent_history, "Snooze", snoozePendingIntent)
-            .setFullScreenIntent(tapPendingIntent, true) // Auto-open on lock screen
-            .setVibrate(new long[]{0, 250, 250, 250}) // Vibration pattern
-            .build();
-    }
-
-    private Notification createAlarmNotification(String alarmId) {
-        // Stop action
-        Intent stopIntent = new Intent(this, AlarmAudioService.class);
-        stopIntent.setAction(ACTION_STOP_ALARM);
-        PendingIntent stopPendingIntent = PendingIntent.getService(
-            this, 1, stopIntent, PendingIntent.FLAG_IMMUTABLE);
-
-        // Snooze action - uses AlarmActionReceiver for snooze logic
-        Intent snoozeIntent = new Intent(this, AlarmActionReceiver.class);
-        snoozeIntent.setAction("SNOOZE");
-        snoozeIntent.putExtra("alarmId", alarmId);
-        snoozeIntent.putExtra("audioPath", currentAudioPath != null ? currentAudioPath : "");
-        PendingIntent snoozePendingIntent = PendingIntent.getBroadcast(
-            this, 2, snoozeIntent, PendingIntent.FLAG_IMMUTABLE);
-
-        // Open alarm activity action
-        Intent alarmActivityIntent = new Intent(this, AlarmActivity.class);
-        alarmActivityIntent.putExtra(AlarmActivity.EXTRA_ALARM_ID, alarmId);
-        alarmActivityIntent.putExtra(AlarmActivity.EXTRA_ALARM_TIME, "Alarm");
-        alarmActivityIntent.putExtra(AlarmActivity.EXTRA_AUDIO_PATH, currentAudioPath != null ? currentAudioPath : "");
-        alarmActivityIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
-        PendingIntent alarmActivityPendingIntent = PendingIntent.getActivity(
-            this, 3, alarmActivityIntent, PendingIntent.FLAG_IMMUTABLE);
-
-        // Create notification that matches Android system format (the important one)
-        String currentTime = getCurrentTime();
-        String systemMessage = "It's " + currentTime + ". Your custom alarm is playing!";
-        
-        return new NotificationCompat.Builder(this, CHANNEL_ID)
-            .setContentTitle("Alarm - " + currentTime)
-            .setContentText(systemMessage)
-            .setSmallIcon(android.R.drawable.ic_lock_idle_alarm)
-            .setPriority(NotificationCompat.PRIORITY_MAX)
-            .setCategory(NotificationCompat.CATEGORY_ALARM)
-            .setOngoing(true) // Cannot be swiped away
-            .setAutoCancel(false) // Cannot be auto-dismissed
-            .setShowWhen(true) // Show system timestamp like Android system
-            .setWhen(System.currentTimeMillis()) // Use current time
-            .setContentIntent(alarmActivityPendingIntent)
-            .addAction(android.R.drawable.ic_media_pause, "Stop", stopPendingIntent)
-            .addAction(android.R.drawable.ic_menu_recent_history, "Snooze 5min", snoozePendingIntent)
-            .setFullScreenIntent(alarmActivityPendingIntent, true) // Auto-open on lock screen
-            .setTimeoutAfter(0) // Never timeout
-            .setDeleteIntent(null) // Prevent deletion
-            .build();
-    }
-
-    private String getCurrentTime() {
-        SimpleDateFormat sdf = new SimpleDateFormat("h:mm a", Locale.getDefault());
-        return sdf.format(new Date());
-    }
-
     @Override
     public IBinder onBind(Intent intent) {
         return null; // Not a bound service
@@ -435,11 +770,13 @@ public class AlarmAudioService extends Service {
     @Override
     public void onDestroy() {
         Log.d(TAG, "🛑 AlarmAudioService destroyed");
-        stopExistingAudio();
-        
-        if (wakeLock != null && wakeLock.isHeld()) {
-            wakeLock.release();
-        }
+        playbackHandler().post(() -> {
+            stopExistingAudio();
+            ringGeneration = 0;
+            AlarmPlayback.publishRinging(this);
+        });
+        AlarmPlayback.reset();
+        releaseRingingWakeLock();
         
         super.onDestroy();
     }
@@ -0,0 +1,133 @@
+package com.shakshamkarki.practice;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.res.AssetFileDescriptor;
+import android.media.MediaExtractor;
+import android.media.MediaPlayer;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.system.Os;
+import android.system.StructStat;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+/**
+ * Opens an alarm's audio URI as a file descriptor with offset and length,
+ * whatever its shape:
+ * - file:// URIs (percent-encoded or not) and bare absolute paths
+ * - content:// URIs, including SAF documents and FileProvider grants
+ * - android.resource:// URIs, which resolve to an offset inside the APK
+ *
+ * Players get the descriptor instead of a path string, so content URIs play
+ * the real file instead of silently falling back to the system ringtone, and
+ * the fire path needs no File.exists()/length() probes - a missing file is
+ * just a failed open.
+ */
+public class AlarmAudioSource {
+    private static final String TAG = "AlarmAudioSource";
+
+    /**
+     * @return an open descriptor the caller must close, or null if the URI is empty
+     * @throws FileNotFoundException if the URI can't be opened
+     */
+    public static AssetFileDescriptor open(Context context, String audioUri) throws FileNotFoundException {
+        if (audioUri == null || audioUri.isEmpty()) {
+            return null;
+        }
+
+        Uri uri = Uri.parse(audioUri);
+        String scheme = uri.getScheme();
+        if (scheme == null) {
+            return openFile(new File(audioUri));
+        }
+        if (ContentResolver.SCHEME_FILE.equals(scheme)) {
+            try {
+                return openFile(new File(uri.getPath()));
+            } catch (FileNotFoundException e) {
+                // Paths built by string concatenation in JS aren't percent-encoded
+                return openFile(new File(audioUri.substring("file://".length())));
+            }
+        }
+        if (ContentResolver.SCHEME_CONTENT.equals(scheme)
+                || ContentResolver.SCHEME_ANDROID_RESOURCE.equals(scheme)) {
+            AssetFileDescriptor afd = context.getContentResolver().openAssetFileDescriptor(uri, "r");
+            if (afd == null) {
+                throw new FileNotFoundException("Provider returned no descriptor for " + audioUri);
+            }
+            return afd;
+        }
+        throw new FileNotFoundException("Unsupported audio URI scheme: " + audioUri);
+    }
+
+    /**
+     * Point a player at the alarm's audio
+     * @return false if there is no audio or it can't be opened (caller falls back)
+     */
+    public static boolean setDataSource(Context context, MediaPlayer player, String audioUri) {
+        try (AssetFileDescriptor afd = open(context, audioUri)) {
+            if (afd == null) {
+                return false;
+            }
+            // MediaPlayer dups the descriptor, so closing ours afterwards is fine
+            if (afd.getDeclaredLength() < 0) {
+                player.setDataSource(afd.getFileDescriptor());
+            } else {
+                player.setDataSource(afd.getFileDescriptor(), afd.getStartOffset(), afd.getDeclaredLength());
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Cannot open alarm audio " + audioUri, e);
+            return false;
+        }
+    }
+
+    public static void setDataSource(MediaExtractor extractor, AssetFileDescriptor afd) throws IOException {
+        if (afd.getDeclaredLength() < 0) {
+            extractor.setDataSource(afd.getFileDescriptor());
+        } else {
+            extractor.setDataSource(afd.getFileDescriptor(), afd.getStartOffset(), afd.getDeclaredLength());
+        }
+    }
+
+    /**
+     * Identity of the bytes behind a descriptor - length plus the backing
+     * file's mtime - so caches notice when a recording is replaced
+     */
+    public static String fingerprint(AssetFileDescriptor afd) {
+        try {
+            StructStat stat = Os.fstat(afd.getFileDescriptor());
+            long length = afd.getDeclaredLength() >= 0 ? afd.getDeclaredLength() : stat.st_size;
+            return length + "_" + stat.st_mtime;
+        } catch (Exception e) {
+            return String.valueOf(afd.getLength());
+        }
+    }
+
+    /**
+     * Keep read access to a content URI across reboots. Only URIs handed out
+     * with a persistable grant (SAF document pickers) can be kept; for the rest
+     * this is a no-op and access lasts as long as the provider allows.
+     */
+    public static void retain(Context context, String audioUri) {
+        if (audioUri == null || !audioUri.startsWith(ContentResolver.SCHEME_CONTENT + ":")) {
+            return;
+        }
+        try {
+            context.getContentResolver().takePersistableUriPermission(
+                Uri.parse(audioUri), Intent.FLAG_GRANT_READ_URI_PERMISSION);
+            Log.d(TAG, "🔐 Persisted read grant for " + audioUri);
+        } catch (SecurityException e) {
+            // Not persistable - nothing to keep
+        }
+    }
+
+    private static AssetFileDescriptor openFile(File file) throws FileNotFoundException {
+        ParcelFileDescriptor pfd = ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY);
+        return new AssetFileDescriptor(pfd, 0, AssetFileDescriptor.UNKNOWN_LENGTH);
+    }
+}
@@ -0,0 +1,78 @@
+package com.shakshamkarki.practice;
+
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import java.util.List;
+
+/**
+ * Alarm lifecycle events for the JS layer.
+ *
+ * Every event is queued in AlarmRegistry first, then a package-local broadcast
+ * tells a live NativeAlarmModule to drain the queue. Events recorded while JS
+ * is not running (app killed, alarm fired from AlarmManager) stay queued and
+ * are replayed as one batch when JS attaches.
+ */
+public class AlarmEvents {
+    private static final String TAG = "AlarmEvents";
+
+    public static final String FIRED = "fired";
+    public static final String AUDIO_STARTED = "audioStarted";
+    public static final String STOPPED = "stopped";
+    public static final String SNOOZED = "snoozed";
+    public static final String RESCHEDULED = "rescheduled";
+    public static final String MISSED = "missed";
+
+    /** Sent to this package only whenever something was queued */
+    public static final String ACTION_EVENTS_QUEUED = "com.shakshamkarki.practice.ALARM_EVENTS_QUEUED";
+
+    /** Oldest events are dropped beyond this, so a long-dead JS side can't grow the queue forever */
+    static final int MAX_QUEUED_EVENTS = 200;
+
+    public static class Event {
+        public final long id;
+        public final String type;
+        public final String alarmId;
+        public final long atMs;
+        /** Scheduled time the event refers to (fire, snooze or next occurrence), if any */
+        public final Long fireTimeMs;
+
+        public Event(long id, String type, String alarmId, long atMs, Long fireTimeMs) {
+            this.id = id;
+            this.type = type;
+            this.alarmId = alarmId;
+            this.atMs = atMs;
+            this.fireTimeMs = fireTimeMs;
+        }
+    }
+
+    public static void record(Context context, String type, String alarmId) {
+        record(context, type, alarmId, null);
+    }
+
+    /**
+     * Queue an event and poke the module. Never throws - a failed event must
+     * not interrupt the alarm itself.
+     */
+    public static void record(Context context, String type, String alarmId, Long fireTimeMs) {
+        try {
+            Event event = new Event(0, type, alarmId, System.currentTimeMillis(), fireTimeMs);
+            AlarmRegistry.getInstance(context).appendEvent(event, MAX_QUEUED_EVENTS);
+
+            Intent intent = new Intent(ACTION_EVENTS_QUEUED);
+            intent.setPackage(context.getPackageName());
+            context.sendBroadcast(intent);
+            Log.d(TAG, "📣 " + type + " " + alarmId);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to record " + type + " event for " + alarmId, e);
+        }
+    }
+
+    /**
+     * Remove and return every queued event, oldest first
+     */
+    public static List<Event> drain(Context context) {
+        return AlarmRegistry.getInstance(context).takeEvents();
+    }
+}
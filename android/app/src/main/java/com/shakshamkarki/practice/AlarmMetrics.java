@@ -0,0 +1,265 @@
+package com.shakshamkarki.practice;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Fire-to-sound latency samples, one record per delivered alarm.
+ *
+ * Records live in a fixed-size ring buffer backed by a memory-mapped file, so
+ * samples survive process death (the kernel owns the dirty pages) and are
+ * visible to every process of the app. Stamping a stage is a single putLong:
+ * no allocation on the alarm path.
+ *
+ * Stage times are SystemClock.elapsedRealtime() - monotonic and system-wide.
+ * Only the scheduled/delivered pair is wall-clock, to measure how late
+ * AlarmManager delivered.
+ */
+public class AlarmMetrics {
+    private static final String TAG = "AlarmMetrics";
+    // v2 added the process start field, v3 the AlarmActivity stages; older records are left behind rather than misread
+    private static final String FILE_NAME = "alarm_metrics_v3.bin";
+
+    static final int CAPACITY = 128;
+
+    /** Async trace section from delivery to the first audio frame, for Macrobenchmark's TraceSectionMetric */
+    public static final String TRACE_FIRE_TO_SOUND = "AlarmFireToSound";
+
+    /** A delivery this soon after the process started is counted as the cold start that started it */
+    private static final long COLD_START_WINDOW_MS = 30 * 1000;
+    /** markLatest() only stamps a record delivered this recently; anything older belongs to another ring */
+    private static final long LATEST_WINDOW_MS = 60 * 1000;
+
+    // Record layout, one long per field
+    private static final int F_SEQ = 0;
+    private static final int F_SCHEDULED_WALL = 1;
+    private static final int F_DELIVERED_WALL = 2;
+    public static final int STAGE_DELIVERED = 3;
+    public static final int STAGE_SERVICE_START = 4;
+    public static final int STAGE_FOREGROUND = 5;
+    public static final int STAGE_PREPARED = 6;
+    public static final int STAGE_FIRST_FRAME = 7;
+    private static final int F_PROCESS_START = 8;
+    public static final int STAGE_ACTIVITY_CREATED = 9;
+    public static final int STAGE_ACTIVITY_DRAWN = 10;
+    public static final int STAGE_ACTIVITY_FULLY_DRAWN = 11;
+    private static final int FIELDS = 12;
+
+    // Header: next sequence number, padded to one record
+    private static final int HEADER_BYTES = FIELDS * 8;
+    private static final int RECORD_BYTES = FIELDS * 8;
+
+    /** Reported intervals: name, from field, to field */
+    private static final String[] INTERVAL_NAMES = {
+        "fireDelay", "deliveryToService", "serviceToForeground",
+        "foregroundToPrepared", "preparedToFirstFrame", "deliveryToFirstFrame",
+        "coldStartToDelivery", "deliveryToActivity", "timeToInitialDisplay", "timeToFullDisplay"
+    };
+    private static final int[][] INTERVALS = {
+        {F_SCHEDULED_WALL, F_DELIVERED_WALL},
+        {STAGE_DELIVERED, STAGE_SERVICE_START},
+        {STAGE_SERVICE_START, STAGE_FOREGROUND},
+        {STAGE_FOREGROUND, STAGE_PREPARED},
+        {STAGE_PREPARED, STAGE_FIRST_FRAME},
+        {STAGE_DELIVERED, STAGE_FIRST_FRAME},
+        {F_PROCESS_START, STAGE_DELIVERED},
+        {STAGE_DELIVERED, STAGE_ACTIVITY_CREATED},
+        {STAGE_ACTIVITY_CREATED, STAGE_ACTIVITY_DRAWN},
+        {STAGE_ACTIVITY_CREATED, STAGE_ACTIVITY_FULLY_DRAWN}
+    };
+
+    private static MappedByteBuffer buffer;
+    /** Only the first delivery in a process can have been what started it */
+    private static boolean processStartClaimed;
+
+    private static synchronized MappedByteBuffer buffer(Context context) {
+        if (buffer == null) {
+            File file = new File(context.getApplicationContext().getNoBackupFilesDir(), FILE_NAME);
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                // Mapping outlives the channel; size is fixed so the layout never moves
+                buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_BYTES + (long) CAPACITY * RECORD_BYTES);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to map metrics file", e);
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Start a record for a delivered alarm
+     * @return sequence number to pass to mark(), or 0 if metrics are unavailable
+     */
+    public static long begin(Context context, long scheduledWallMs) {
+        return begin(context, scheduledWallMs, System.currentTimeMillis(), SystemClock.elapsedRealtime());
+    }
+
+    /**
+     * Start a record with the delivery time captured earlier, when the
+     * receiver stamps delivery on the main thread and writes it from a worker
+     */
+    public static synchronized long begin(Context context, long scheduledWallMs, long deliveredWallMs, long deliveredElapsedMs) {
+        MappedByteBuffer buf = buffer(context);
+        if (buf == null) {
+            return 0;
+        }
+        long seq = buf.getLong(0) + 1;
+        buf.putLong(0, seq);
+
+        int base = offset(seq, 0);
+        // Invalidate first so a half-written record is never read back
+        buf.putLong(base + F_SEQ * 8, 0);
+        for (int field = 1; field < FIELDS; field++) {
+            buf.putLong(base + field * 8, 0);
+        }
+        buf.putLong(base + F_SCHEDULED_WALL * 8, scheduledWallMs);
+        buf.putLong(base + F_DELIVERED_WALL * 8, deliveredWallMs);
+        buf.putLong(base + STAGE_DELIVERED * 8, deliveredElapsedMs);
+        if (!processStartClaimed) {
+            processStartClaimed = true;
+            long processStartMs = Process.getStartElapsedRealtime();
+            if (deliveredElapsedMs - processStartMs < COLD_START_WINDOW_MS) {
+                buf.putLong(base + F_PROCESS_START * 8, processStartMs);
+            }
+        }
+        buf.putLong(base + F_SEQ * 8, seq);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(TRACE_FIRE_TO_SOUND, (int) seq);
+        }
+        return seq;
+    }
+
+    /**
+     * Stamp a stage on a record. Ignored if the record has been overwritten
+     * since, or the stage is already stamped.
+     */
+    public static void mark(Context context, long seq, int stage) {
+        mark(context, seq, stage, SystemClock.elapsedRealtime());
+    }
+
+    /**
+     * Stamp a stage with a time captured earlier, for stages that happen on a
+     * thread which shouldn't touch the buffer itself
+     */
+    public static synchronized void mark(Context context, long seq, int stage, long atElapsedMs) {
+        if (seq <= 0) {
+            return;
+        }
+        MappedByteBuffer buf = buffer(context);
+        if (buf == null) {
+            return;
+        }
+        int base = offset(seq, 0);
+        if (buf.getLong(base + F_SEQ * 8) != seq || buf.getLong(base + stage * 8) != 0) {
+            return;
+        }
+        buf.putLong(base + stage * 8, atElapsedMs);
+        if (stage == STAGE_FIRST_FRAME && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(TRACE_FIRE_TO_SOUND, (int) seq);
+        }
+    }
+
+    /**
+     * Stamp a stage on the newest record, for components launched without its
+     * sequence number - AlarmActivity comes up through a prebuilt notification.
+     * Ignored unless that record was delivered within LATEST_WINDOW_MS before.
+     */
+    public static synchronized void markLatest(Context context, int stage, long atElapsedMs) {
+        MappedByteBuffer buf = buffer(context);
+        if (buf == null) {
+            return;
+        }
+        long seq = buf.getLong(0);
+        if (seq <= 0) {
+            return;
+        }
+        long deliveredAt = buf.getLong(offset(seq, STAGE_DELIVERED));
+        if (deliveredAt == 0 || atElapsedMs < deliveredAt || atElapsedMs - deliveredAt > LATEST_WINDOW_MS) {
+            return;
+        }
+        mark(context, seq, stage, atElapsedMs);
+    }
+
+    /**
+     * Summary statistics for one interval across the ring
+     */
+    public static class IntervalStats {
+        public final String name;
+        public final int count;
+        public final long p50;
+        public final long p95;
+        public final long p99;
+        public final long max;
+
+        IntervalStats(String name, long[] sortedSamples, int count) {
+            this.name = name;
+            this.count = count;
+            this.p50 = percentile(sortedSamples, count, 50);
+            this.p95 = percentile(sortedSamples, count, 95);
+            this.p99 = percentile(sortedSamples, count, 99);
+            this.max = count > 0 ? sortedSamples[count - 1] : 0;
+        }
+    }
+
+    /**
+     * p50/p95/p99 per interval over every complete pair of stamps in the ring.
+     * Runs on demand, so it may allocate.
+     */
+    public static synchronized IntervalStats[] summarize(Context context) {
+        IntervalStats[] stats = new IntervalStats[INTERVALS.length];
+        MappedByteBuffer buf = buffer(context);
+        long[] samples = new long[CAPACITY];
+
+        for (int i = 0; i < INTERVALS.length; i++) {
+            int count = 0;
+            if (buf != null) {
+                for (int slot = 0; slot < CAPACITY; slot++) {
+                    int base = HEADER_BYTES + slot * RECORD_BYTES;
+                    if (buf.getLong(base + F_SEQ * 8) == 0) {
+                        continue;
+                    }
+                    long from = buf.getLong(base + INTERVALS[i][0] * 8);
+                    long to = buf.getLong(base + INTERVALS[i][1] * 8);
+                    if (from != 0 && to != 0) {
+                        samples[count++] = to - from;
+                    }
+                }
+            }
+            Arrays.sort(samples, 0, count);
+            stats[i] = new IntervalStats(INTERVAL_NAMES[i], samples, count);
+        }
+        return stats;
+    }
+
+    /**
+     * Number of records written so far (the ring keeps the newest CAPACITY)
+     */
+    public static synchronized long totalRecorded(Context context) {
+        MappedByteBuffer buf = buffer(context);
+        return buf != null ? buf.getLong(0) : 0;
+    }
+
+    private static int offset(long seq, int field) {
+        int slot = (int) ((seq - 1) % CAPACITY);
+        return HEADER_BYTES + slot * RECORD_BYTES + field * 8;
+    }
+
+    // Nearest-rank percentile over the first count sorted samples
+    private static long percentile(long[] sorted, int count, int pct) {
+        if (count == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(pct / 100.0 * count);
+        return sorted[Math.max(0, rank - 1)];
+    }
+}
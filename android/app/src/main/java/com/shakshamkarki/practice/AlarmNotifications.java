@@ -0,0 +1,203 @@
+package com.shakshamkarki.practice;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.util.Log;
+import androidx.core.app.NotificationCompat;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+
+/**
+ * Notification channel and the foreground notification shown while an alarm
+ * rings.
+ *
+ * The channel is created once per CHANNELS_VERSION (first schedule after
+ * install, or the restore after an upgrade) rather than on every fire. The
+ * cache below lives in the ":alarm" process, where AlarmAudioService needs
+ * it: the warm-up and AlarmReceiver's background work check the channel and
+ * build the alarm's notification there, so the service's main thread makes
+ * no channel binder call and builds nothing. Its PendingIntents are keyed to
+ * the alarm ID and use FLAG_UPDATE_CURRENT, so stop/snooze/open never carry
+ * another alarm's extras. Without either, the service builds it itself.
+ */
+public class AlarmNotifications {
+    private static final String TAG = "AlarmNotifications";
+
+    static final String CHANNEL_ID = "alarm_audio_service";
+    /** Bump when the channel's settings change - channels are immutable once created */
+    private static final int CHANNELS_VERSION = 1;
+    private static final String SETTING_CHANNELS_VERSION = "notification_channels_version";
+
+    private static final int MAX_PREBUILT = 16;
+
+    private static volatile boolean channelsReady;
+    // Access order, so the least recently prepared/fired alarm is dropped first
+    private static final LinkedHashMap<String, Prebuilt> prebuilt = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** A notification and the recording its snooze action carries */
+    private static final class Prebuilt {
+        final String audioPath;
+        final Notification notification;
+
+        Prebuilt(String audioPath, Notification notification) {
+            this.audioPath = audioPath;
+            this.notification = notification;
+        }
+    }
+
+    /**
+     * Create the channel if this install hasn't got the current version yet.
+     * The channel is app-wide, so any process can do this, unlike
+     * prepareForFire(). Reads the registry - call off the main thread. Never throws.
+     */
+    static void ensureChannels(Context context) {
+        if (channelsReady || Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            return;
+        }
+        try {
+            AlarmRegistry registry = AlarmRegistry.getInstance(context);
+            int installed = Integer.parseInt(registry.getSetting(SETTING_CHANNELS_VERSION, "0"));
+            if (installed != CHANNELS_VERSION) {
+                NotificationManager notificationManager = context.getSystemService(NotificationManager.class);
+                if (installed != 0) {
+                    // Settings of an existing channel can't be changed, only replaced
+                    notificationManager.deleteNotificationChannel(CHANNEL_ID);
+                }
+                notificationManager.createNotificationChannel(buildChannel());
+                registry.putSetting(SETTING_CHANNELS_VERSION, String.valueOf(CHANNELS_VERSION));
+                Log.d(TAG, "🔇 Notification channel v" + CHANNELS_VERSION + " created");
+            }
+            channelsReady = true;
+        } catch (Exception e) {
+            // The fire path checks again before startForeground
+            Log.w(TAG, "Failed to set up notification channel", e);
+        }
+    }
+
+    /**
+     * Make sure the channel exists with a single binder call, once per
+     * process. Done off the main thread ahead of the fire, so this is a no-op
+     * by the time the service calls it.
+     */
+    static void ensureChannelsForFire(Context context) {
+        if (channelsReady || Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            return;
+        }
+        NotificationManager notificationManager = context.getSystemService(NotificationManager.class);
+        if (notificationManager.getNotificationChannel(CHANNEL_ID) == null) {
+            // Deleted by an earlier version, or never scheduled through AlarmScheduler
+            notificationManager.createNotificationChannel(buildChannel());
+        }
+        channelsReady = true;
+    }
+
+    /**
+     * Check the channel and build the foreground notification for an alarm
+     * about to fire. Call in the alarm process, off the main thread - from
+     * the warm-up or AlarmReceiver's work. Never throws.
+     */
+    static void prepareForFire(Context context, String alarmId, String audioPath) {
+        try {
+            ensureChannelsForFire(context);
+            synchronized (prebuilt) {
+                Prebuilt existing = prebuilt.get(alarmId);
+                if (existing != null && Objects.equals(existing.audioPath, audioPath)) {
+                    return; // Warmed earlier
+                }
+            }
+            Notification notification = build(context, alarmId, audioPath);
+            synchronized (prebuilt) {
+                prebuilt.put(alarmId, new Prebuilt(audioPath, notification));
+                Iterator<String> oldest = prebuilt.keySet().iterator();
+                while (prebuilt.size() > MAX_PREBUILT) {
+                    oldest.next();
+                    oldest.remove();
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to prebuild notification for " + alarmId, e);
+        }
+    }
+
+    /**
+     * @return the prebuilt notification for this alarm and recording, built now if there is none
+     */
+    static Notification forAlarm(Context context, String alarmId, String audioPath) {
+        Prebuilt cached;
+        synchronized (prebuilt) {
+            cached = alarmId != null ? prebuilt.get(alarmId) : null;
+        }
+        // Rescheduled with another recording since - its snooze must carry the new one
+        if (cached != null && Objects.equals(cached.audioPath, audioPath)) {
+            return cached.notification;
+        }
+        Log.d(TAG, "🥶 No prebuilt notification for " + alarmId + " - building on fire");
+        return build(context, alarmId, audioPath);
+    }
+
+    private static NotificationChannel buildChannel() {
+        NotificationChannel channel = new NotificationChannel(
+            CHANNEL_ID,
+            "Background Service",
+            NotificationManager.IMPORTANCE_MIN // Minimal importance - almost invisible
+        );
+        channel.setDescription("Background audio service");
+        channel.setSound(null, null); // No sound
+        channel.setShowBadge(false); // No badge
+        channel.setLightColor(0); // No light
+        channel.setVibrationPattern(null); // No vibration
+        channel.enableLights(false); // No lights
+        channel.enableVibration(false); // No vibration
+        channel.setLockscreenVisibility(NotificationCompat.VISIBILITY_SECRET); // Hidden on lock screen
+        return channel;
+    }
+
+    private static Notification build(Context context, String alarmId, String audioPath) {
+        String path = audioPath != null ? audioPath : "";
+        // Same request code for all three - the target component already tells them apart
+        int requestCode = alarmId != null ? alarmId.hashCode() : 0;
+        int flags = PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE;
+
+        Intent stopIntent = new Intent(context, AlarmActionReceiver.class);
+        stopIntent.setAction("STOP");
+        stopIntent.putExtra("alarmId", alarmId);
+        PendingIntent stopPendingIntent = PendingIntent.getBroadcast(context, requestCode, stopIntent, flags);
+
+        Intent snoozeIntent = new Intent(context, AlarmActionReceiver.class);
+        snoozeIntent.setAction("SNOOZE");
+        snoozeIntent.putExtra("alarmId", alarmId);
+        snoozeIntent.putExtra("audioPath", path);
+        PendingIntent snoozePendingIntent = PendingIntent.getBroadcast(context, requestCode, snoozeIntent, flags);
+
+        // Tap opens the alarm screen
+        Intent tapIntent = new Intent(context, AlarmActivity.class);
+        tapIntent.putExtra(AlarmActivity.EXTRA_ALARM_ID, alarmId);
+        tapIntent.putExtra(AlarmActivity.EXTRA_ALARM_TIME, "Alarm Ringing");
+        tapIntent.putExtra(AlarmActivity.EXTRA_AUDIO_PATH, path);
+        tapIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+        PendingIntent tapPendingIntent = PendingIntent.getActivity(context, requestCode, tapIntent, flags);
+
+        // Minimal hidden notification for foreground service compliance
+        return new NotificationCompat.Builder(context, CHANNEL_ID)
+            .setContentTitle("Silent")
+            .setContentText("")
+            .setSmallIcon(android.R.drawable.ic_media_play)
+            .setPriority(NotificationCompat.PRIORITY_MIN) // Minimal priority
+            .setCategory(NotificationCompat.CATEGORY_SERVICE) // Service category
+            .setOngoing(false) // Can be dismissed
+            .setAutoCancel(true) // Auto dismiss
+            .setShowWhen(false) // No timestamp
+            .setSilent(true) // Silent notification
+            .setContentIntent(tapPendingIntent)
+            .addAction(android.R.drawable.ic_media_pause, "Stop", stopPendingIntent)
+            .addAction(android.R.drawable.ic_menu_recent_history, "Snooze", snoozePendingIntent)
+            .build();
+    }
+}
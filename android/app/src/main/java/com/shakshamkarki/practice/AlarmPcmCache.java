@@ -0,0 +1,347 @@
+package com.shakshamkarki.practice;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.media.AudioFormat;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decoded 16-bit PCM copies of alarm recordings, so a fire can play them
+ * through PcmAlarmPlayer without spinning up a codec.
+ *
+ * Recordings are decoded once in the background when their alarm is
+ * scheduled. Sources are read through AlarmAudioSource, so content URIs are
+ * decoded in place rather than copied. The cache file name includes the
+ * source's size and mtime, so a re-recorded file is decoded again.
+ * Both processes schedule alarms and so both decode: writers take a lock
+ * file per recording, write to their own temp file and rename it into
+ * place. A recording that can't be cached (too long, no audio track,
+ * decoder error) gets a ".fail" marker under the same fingerprint and
+ * isn't tried again until it changes.
+ * Encoder delay/padding reported by the container is trimmed so the loop
+ * point is sample-accurate.
+ *
+ * File layout: 24-byte little-endian header (magic, sampleRate, channelCount,
+ * reserved) followed by interleaved 16-bit samples.
+ */
+public class AlarmPcmCache {
+    private static final String TAG = "AlarmPcmCache";
+    private static final String DIR_NAME = "alarm_pcm";
+
+    private static final int MAGIC = 0x4D435041; // "APCM"
+    static final int HEADER_BYTES = 24;
+
+    /** Longer recordings stay on MediaPlayer rather than filling the disk */
+    private static final long MAX_PCM_BYTES = 32L * 1024 * 1024;
+    private static final long CODEC_TIMEOUT_US = 10000;
+
+    /** Unique temp file names within this process; the pid covers the other one */
+    private static final AtomicInteger tmpFiles = new AtomicInteger();
+
+    private static final ExecutorService decodeExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, "AlarmPcmDecode");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** Header fields of a cached file */
+    public static class Info {
+        public final File file;
+        public final int sampleRate;
+        public final int channelCount;
+
+        Info(File file, int sampleRate, int channelCount) {
+            this.file = file;
+            this.sampleRate = sampleRate;
+            this.channelCount = channelCount;
+        }
+    }
+
+    /**
+     * Queue a background decode if this recording isn't cached yet
+     */
+    public static void prefetch(Context context, final String audioPath) {
+        if (audioPath == null || audioPath.isEmpty()) {
+            return;
+        }
+        final Context appContext = context.getApplicationContext();
+        decodeExecutor.execute(() -> {
+            try (AssetFileDescriptor source = AlarmAudioSource.open(appContext, audioPath)) {
+                File target = cacheFile(appContext, audioPath, source);
+                File failed = failureMarker(target);
+                if (target.exists() || failed.exists()) {
+                    return;
+                }
+                File dir = cacheDir(appContext);
+                if (!dir.isDirectory() && !dir.mkdirs()) {
+                    throw new IOException("Cannot create " + dir);
+                }
+                try (RandomAccessFile lockFile = new RandomAccessFile(
+                        new File(dir, cachePrefix(audioPath) + "lock"), "rw");
+                     FileLock lock = lockFile.getChannel().lock()) {
+                    // The other process may have finished it while we waited
+                    if (target.exists() || failed.exists()) {
+                        return;
+                    }
+                    long start = SystemClock.elapsedRealtime();
+                    boolean cached;
+                    try {
+                        cached = decode(appContext, audioPath, source, target);
+                    } catch (Exception e) {
+                        Log.w(TAG, "PCM decode failed for " + audioPath, e);
+                        cached = false;
+                    }
+                    if (cached) {
+                        Log.d(TAG, "💾 Cached PCM for " + audioPath + " in "
+                            + (SystemClock.elapsedRealtime() - start) + "ms");
+                    } else {
+                        // Whatever was cached for an older version of the file is stale too
+                        deleteStaleVersions(dir, audioPath);
+                        if (!failed.createNewFile()) {
+                            Log.w(TAG, "Cannot mark " + audioPath + " as uncacheable");
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "PCM prefetch failed for " + audioPath, e);
+            }
+        });
+    }
+
+    /**
+     * @return the cached PCM for this recording, or null if it hasn't been decoded
+     */
+    public static Info lookup(Context context, String audioPath) {
+        if (audioPath == null || audioPath.isEmpty()) {
+            return null;
+        }
+        File file;
+        try (AssetFileDescriptor source = AlarmAudioSource.open(context, audioPath)) {
+            file = cacheFile(context, audioPath, source);
+        } catch (IOException e) {
+            return null;
+        }
+        if (!file.exists()) {
+            return null;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            raf.getChannel().read(header, 0);
+            if (header.getInt(0) != MAGIC) {
+                return null;
+            }
+            return new Info(file, header.getInt(4), header.getInt(8));
+        } catch (IOException e) {
+            Log.w(TAG, "Unreadable PCM cache " + file, e);
+            return null;
+        }
+    }
+
+    private static File cacheDir(Context context) {
+        return new File(context.getNoBackupFilesDir(), DIR_NAME);
+    }
+
+    private static String cachePrefix(String audioPath) {
+        return Integer.toHexString(audioPath.hashCode()) + "_";
+    }
+
+    private static File cacheFile(Context context, String audioPath, AssetFileDescriptor source) {
+        return new File(cacheDir(context),
+            cachePrefix(audioPath) + AlarmAudioSource.fingerprint(source) + ".pcm");
+    }
+
+    private static File failureMarker(File target) {
+        return new File(target.getParentFile(), target.getName().replace(".pcm", ".fail"));
+    }
+
+    /**
+     * Call with the recording's lock held
+     */
+    private static boolean decode(Context context, String audioPath, AssetFileDescriptor source, File target)
+            throws IOException {
+        File dir = cacheDir(context);
+        // Leftovers of a writer that died mid-decode - no one else holds the lock
+        deleteFiles(dir, cachePrefix(audioPath), ".tmp");
+        File tmp = new File(dir, target.getName() + "." + Process.myPid() + "-"
+            + tmpFiles.incrementAndGet() + ".tmp");
+
+        MediaExtractor extractor = new MediaExtractor();
+        MediaCodec codec = null;
+        try {
+            AlarmAudioSource.setDataSource(extractor, source);
+            MediaFormat format = null;
+            for (int i = 0; i < extractor.getTrackCount(); i++) {
+                MediaFormat candidate = extractor.getTrackFormat(i);
+                String mime = candidate.getString(MediaFormat.KEY_MIME);
+                if (mime != null && mime.startsWith("audio/")) {
+                    extractor.selectTrack(i);
+                    format = candidate;
+                    break;
+                }
+            }
+            if (format == null) {
+                Log.w(TAG, "No audio track in " + audioPath);
+                return false;
+            }
+
+            codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+            codec.configure(format, null, null, 0);
+            codec.start();
+
+            int sampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+            int channelCount = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+            long pcmBytes;
+            try (FileOutputStream out = new FileOutputStream(tmp)) {
+                FileChannel channel = out.getChannel();
+                channel.position(HEADER_BYTES);
+
+                MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+                boolean inputDone = false;
+                while (true) {
+                    if (!inputDone) {
+                        int inIndex = codec.dequeueInputBuffer(CODEC_TIMEOUT_US);
+                        if (inIndex >= 0) {
+                            ByteBuffer in = codec.getInputBuffer(inIndex);
+                            int size = extractor.readSampleData(in, 0);
+                            if (size < 0) {
+                                codec.queueInputBuffer(inIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                                inputDone = true;
+                            } else {
+                                codec.queueInputBuffer(inIndex, 0, size, extractor.getSampleTime(), 0);
+                                extractor.advance();
+                            }
+                        }
+                    }
+
+                    int outIndex = codec.dequeueOutputBuffer(info, CODEC_TIMEOUT_US);
+                    if (outIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                        MediaFormat outFormat = codec.getOutputFormat();
+                        sampleRate = outFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+                        channelCount = outFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+                        if (outFormat.containsKey(MediaFormat.KEY_PCM_ENCODING)
+                                && outFormat.getInteger(MediaFormat.KEY_PCM_ENCODING) != AudioFormat.ENCODING_PCM_16BIT) {
+                            Log.w(TAG, "Decoder output is not 16-bit PCM, not caching " + audioPath);
+                            return false;
+                        }
+                    } else if (outIndex >= 0) {
+                        if (info.size > 0) {
+                            ByteBuffer decoded = codec.getOutputBuffer(outIndex);
+                            decoded.position(info.offset).limit(info.offset + info.size);
+                            channel.write(decoded);
+                        }
+                        codec.releaseOutputBuffer(outIndex, false);
+                        if (channel.position() - HEADER_BYTES > MAX_PCM_BYTES) {
+                            Log.w(TAG, "Recording too long to cache as PCM: " + audioPath);
+                            return false;
+                        }
+                        if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                            break;
+                        }
+                    }
+                }
+                pcmBytes = channel.position() - HEADER_BYTES;
+            }
+
+            // Drop the encoder's priming and padding samples so the loop is seamless
+            int frameBytes = 2 * channelCount;
+            long delayBytes = (long) intOrZero(format, "encoder-delay") * frameBytes;
+            long paddingBytes = (long) intOrZero(format, "encoder-padding") * frameBytes;
+            if (delayBytes + paddingBytes >= pcmBytes) {
+                delayBytes = 0;
+                paddingBytes = 0;
+            }
+            pcmBytes -= delayBytes + paddingBytes;
+            if (pcmBytes < frameBytes) {
+                return false;
+            }
+            writeTrimmed(tmp, delayBytes, pcmBytes, sampleRate, channelCount);
+
+            deleteStaleVersions(dir, audioPath);
+            if (!tmp.renameTo(target)) {
+                throw new IOException("Cannot move " + tmp + " to " + target);
+            }
+            return true;
+        } finally {
+            if (codec != null) {
+                codec.release();
+            }
+            extractor.release();
+            if (tmp.exists()) {
+                tmp.delete();
+            }
+        }
+    }
+
+    private static void writeTrimmed(File file, long skipBytes, long pcmBytes, int sampleRate, int channelCount)
+            throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            FileChannel channel = raf.getChannel();
+            if (skipBytes > 0) {
+                // Shift samples down over the priming frames
+                ByteBuffer chunk = ByteBuffer.allocate(64 * 1024);
+                long read = HEADER_BYTES + skipBytes;
+                long write = HEADER_BYTES;
+                long remaining = pcmBytes;
+                while (remaining > 0) {
+                    chunk.clear();
+                    chunk.limit((int) Math.min(chunk.capacity(), remaining));
+                    int n = channel.read(chunk, read);
+                    if (n <= 0) {
+                        break;
+                    }
+                    chunk.flip();
+                    channel.write(chunk, write);
+                    read += n;
+                    write += n;
+                    remaining -= n;
+                }
+            }
+            channel.truncate(HEADER_BYTES + pcmBytes);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(sampleRate).putInt(channelCount);
+            header.rewind();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+    }
+
+    private static void deleteStaleVersions(File dir, String audioPath) {
+        String prefix = cachePrefix(audioPath);
+        deleteFiles(dir, prefix, ".pcm");
+        deleteFiles(dir, prefix, ".fail");
+    }
+
+    private static void deleteFiles(File dir, String prefix, String suffix) {
+        File[] files = dir.listFiles((d, name) -> name.startsWith(prefix) && name.endsWith(suffix));
+        if (files != null) {
+            for (File stale : files) {
+                stale.delete();
+            }
+        }
+    }
+
+    private static int intOrZero(MediaFormat format, String key) {
+        return format.containsKey(key) ? format.getInteger(key) : 0;
+    }
+}
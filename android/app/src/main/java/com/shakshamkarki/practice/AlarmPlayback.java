@@ -0,0 +1,499 @@
+package com.shakshamkarki.practice;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Single owner of the ringing state. Every start, stop and snooze, whether it
+ * comes from AlarmReceiver, the notification actions, AlarmActivity or JS,
+ * goes through here. The state is in memory in the ":alarm" process only;
+ * the main process reaches it through AlarmProcess, except for which alarm is
+ * ringing, which AlarmAudioService publishes to the registry so JS can read
+ * it synchronously without a call into the alarm process.
+ *
+ * IDLE -> PREPARING -> RINGING -> STOPPING -> IDLE. The state is one immutable
+ * Ring swapped with compareAndSet, so no command takes a lock. Each ring has
+ * a generation number. A stop moves only the ring it names into STOPPING, and
+ * only once, so a duplicate tap or a stop for a ring that has already been
+ * replaced does nothing. AlarmAudioService acts on a command only if its
+ * generation is still the one playing, which means it never starts or keeps a
+ * player for a ring that was stopped.
+ *
+ * Alarms that fire within the coalescing window of the current ring join it.
+ * They share its player and notification, and stop and snooze with it.
+ */
+public class AlarmPlayback {
+    private static final String TAG = "AlarmPlayback";
+
+    public enum State { IDLE, PREPARING, RINGING, STOPPING }
+
+    private static final String SETTING_COALESCE_WINDOW_MS = "coalesce_window_ms";
+    /** "<ring start, wall clock>|<alarm ID>" while a ring is active */
+    private static final String SETTING_RINGING = "ringing_alarm";
+    public static final long DEFAULT_COALESCE_WINDOW_MS = 60 * 1000;
+    public static final long MAX_COALESCE_WINDOW_MS = 5 * 60 * 1000;
+
+    /** snooze() results that scheduled nothing */
+    public static final long SNOOZE_NOT_RINGING = 0;
+    public static final long SNOOZE_LIMIT_REACHED = -1;
+
+    /** Sent to this package when a tracked start reaches its first audio frame, or fails */
+    public static final String ACTION_START_RESULT = "com.shakshamkarki.practice.ALARM_START_RESULT";
+    static final String EXTRA_REQUEST_ID = "request_id";
+    static final String EXTRA_FIRST_AUDIO_MS = "first_audio_ms";
+    static final String EXTRA_SOURCE = "source";
+    static final String EXTRA_ERROR_CODE = "error_code";
+    static final String EXTRA_ERROR_MESSAGE = "error_message";
+
+    /** One ring and the alarms sharing it. Immutable - every change is a new instance. */
+    public static final class Ring {
+        public final State state;
+        public final long generation;
+        public final long startedAt;
+        public final String primaryAudioPath;
+        /** First entry started the ring; the rest joined it */
+        public final List<String> alarmIds;
+        /** Ring policy owner for each alarm ID, in the same order */
+        public final List<String> policyIds;
+        /** Each alarm's own recording, in the same order - what its snooze plays */
+        public final List<String> audioPaths;
+        /** User snoozes the first alarm's policy still allows; -1 until read from the registry */
+        public final int snoozesLeft;
+
+        private Ring(State state, long generation, long startedAt, String primaryAudioPath,
+                     List<String> alarmIds, List<String> policyIds, List<String> audioPaths, int snoozesLeft) {
+            this.state = state;
+            this.generation = generation;
+            this.startedAt = startedAt;
+            this.primaryAudioPath = primaryAudioPath;
+            this.alarmIds = alarmIds;
+            this.policyIds = policyIds;
+            this.audioPaths = audioPaths;
+            this.snoozesLeft = snoozesLeft;
+        }
+
+        public String primaryId() {
+            return alarmIds.isEmpty() ? null : alarmIds.get(0);
+        }
+
+        boolean isActive() {
+            return state == State.PREPARING || state == State.RINGING;
+        }
+
+        private Ring withState(State next) {
+            return new Ring(next, generation, startedAt, primaryAudioPath, alarmIds, policyIds, audioPaths,
+                snoozesLeft);
+        }
+
+        private Ring withSnoozesLeft(int left) {
+            return new Ring(state, generation, startedAt, primaryAudioPath, alarmIds, policyIds, audioPaths, left);
+        }
+
+        private Ring plus(String alarmId, String policyId, String audioPath) {
+            List<String> ids = new ArrayList<>(alarmIds);
+            List<String> policies = new ArrayList<>(policyIds);
+            List<String> paths = new ArrayList<>(audioPaths);
+            ids.add(alarmId);
+            policies.add(policyId != null ? policyId : alarmId);
+            paths.add(audioPath);
+            return new Ring(state, generation, startedAt, primaryAudioPath, Collections.unmodifiableList(ids),
+                Collections.unmodifiableList(policies), Collections.unmodifiableList(paths), snoozesLeft);
+        }
+    }
+
+    private static final Ring NONE = new Ring(State.IDLE, 0, 0, null,
+        Collections.<String>emptyList(), Collections.<String>emptyList(), Collections.<String>emptyList(), -1);
+
+    private static final AtomicReference<Ring> current = new AtomicReference<>(NONE);
+    private static final AtomicLong generations = new AtomicLong();
+    private static final AtomicInteger sessionsStarted = new AtomicInteger();
+    private static final AtomicInteger coalescedFires = new AtomicInteger();
+    /** Loaded from the registry off the main thread; -1 until then */
+    private static volatile long coalesceWindowMs = -1;
+
+    /**
+     * Hand a fire to AlarmAudioService. Holds the CPU until the service takes
+     * its own ringing hold.
+     * @param policyId alarm whose ring policy applies, null for the alarm itself
+     */
+    public static void start(Context context, String alarmId, String audioPath, String policyId, long metricsSeq) {
+        start(context, alarmId, audioPath, policyId, metricsSeq, 0);
+    }
+
+    /**
+     * Start a ring that reports its first audio frame (or failure) as
+     * ACTION_START_RESULT under this request ID - AlarmProcess.startAndAwait
+     */
+    static void start(Context context, String alarmId, String audioPath, String policyId, long metricsSeq,
+                      long requestId) {
+        Intent serviceIntent = new Intent(context, AlarmAudioService.class);
+        serviceIntent.setAction(AlarmAudioService.ACTION_START_ALARM);
+        serviceIntent.putExtra(AlarmAudioService.EXTRA_AUDIO_PATH, audioPath);
+        serviceIntent.putExtra(AlarmAudioService.EXTRA_ALARM_ID, alarmId);
+        serviceIntent.putExtra(AlarmAudioService.EXTRA_METRICS_SEQ, metricsSeq);
+        serviceIntent.putExtra(AlarmAudioService.EXTRA_POLICY_ID, policyId);
+        if (requestId != 0) {
+            serviceIntent.putExtra(AlarmAudioService.EXTRA_START_REQUEST, requestId);
+            serviceIntent.putExtra(AlarmAudioService.EXTRA_REQUESTED_AT, SystemClock.elapsedRealtime());
+        }
+
+        // AlarmManager's wake lock ends with onReceive - bridge the gap until the service takes over
+        AlarmWakeLocks.acquire(context, AlarmWakeLocks.REASON_FIRE, alarmId, AlarmWakeLocks.FIRE_MAX_MS);
+
+        // Start as foreground service - this will persist even if app is killed
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            context.startForegroundService(serviceIntent);
+        } else {
+            context.startService(serviceIntent);
+        }
+    }
+
+    /**
+     * Dismiss the ring this alarm belongs to, and every alarm in it
+     * @param alarmId alarm the user dismissed, or null for whatever is ringing
+     * @return the alarms stopped - empty if that ring was already stopped or replaced
+     */
+    public static List<String> stop(Context context, String alarmId) {
+        Ring ring = beginStop(alarmId);
+        if (ring == null) {
+            Log.d(TAG, "🔁 Stop for " + alarmId + " ignored - not ringing");
+            return Collections.emptyList();
+        }
+        sendStop(context, ring);
+        publishRinging(context);
+        for (String id : ring.alarmIds) {
+            AlarmEvents.record(context, AlarmEvents.STOPPED, id);
+        }
+        // Dismissed - the next ring may be snoozed the full number of times again
+        for (String policyId : ring.policyIds) {
+            AlarmRingPolicy.resetSnoozes(context, policyId);
+        }
+        return ring.alarmIds;
+    }
+
+    /**
+     * Stop the ring and snooze every alarm in it through AlarmSnooze, all for
+     * the same time so they ring together again, each with its own recording.
+     * Length and limit come from the first alarm's ring policy.
+     * @return when the snooze rings, SNOOZE_LIMIT_REACHED if the ring keeps going
+     *   because the user has no snoozes left, or SNOOZE_NOT_RINGING if that ring
+     *   was already stopped or replaced
+     */
+    public static long snooze(Context context, String alarmId) {
+        Ring ring;
+        String rootId;
+        AlarmRingPolicy policy;
+        while (true) {
+            ring = beginSnooze(alarmId);
+            if (ring == null) {
+                Log.d(TAG, "🔁 Snooze for " + alarmId + " ignored - not ringing");
+                return SNOOZE_NOT_RINGING;
+            }
+            rootId = ring.policyIds.get(0);
+            policy = AlarmRingPolicy.forAlarm(context, rootId);
+            if (ring.snoozesLeft >= 0) {
+                break;
+            }
+            // First snooze of this ring - its budget comes from the registry
+            loadSnoozesLeft(ring.generation, AlarmRingPolicy.snoozesLeft(context, rootId, policy));
+        }
+        if (ring.snoozesLeft == 0) {
+            Log.d(TAG, "🚫 " + rootId + " has used all " + policy.maxSnoozes + " snoozes - still ringing");
+            return SNOOZE_LIMIT_REACHED;
+        }
+        sendStop(context, ring);
+        publishRinging(context);
+        AlarmRingPolicy.takeSnooze(context, rootId);
+
+        long snoozeAt = System.currentTimeMillis() + policy.snoozeMs;
+        AlarmSnooze.scheduleRing(context, ring, snoozeAt);
+        return snoozeAt;
+    }
+
+    private static void sendStop(Context context, Ring ring) {
+        Intent serviceIntent = new Intent(context, AlarmAudioService.class);
+        serviceIntent.setAction(AlarmAudioService.ACTION_STOP_ALARM);
+        serviceIntent.putExtra(AlarmAudioService.EXTRA_GENERATION, ring.generation);
+        serviceIntent.putExtra(AlarmAudioService.EXTRA_POLICY_IDS, ring.policyIds.toArray(new String[0]));
+        context.startService(serviceIntent);
+    }
+
+    /**
+     * Service side of startAndAwait: first audio for a tracked request
+     */
+    static void reportFirstAudio(Context context, long requestId, long timeToFirstAudioMs, String source) {
+        Intent intent = new Intent(ACTION_START_RESULT);
+        intent.setPackage(context.getPackageName());
+        intent.putExtra(EXTRA_REQUEST_ID, requestId);
+        intent.putExtra(EXTRA_FIRST_AUDIO_MS, timeToFirstAudioMs);
+        intent.putExtra(EXTRA_SOURCE, source);
+        context.sendBroadcast(intent);
+    }
+
+    /**
+     * Service side of startAndAwait: the tracked request will never produce audio
+     */
+    static void reportStartFailure(Context context, long requestId, String code, String message) {
+        Log.w(TAG, "Start request " + requestId + " failed: " + code + " " + message);
+        Intent intent = new Intent(ACTION_START_RESULT);
+        intent.setPackage(context.getPackageName());
+        intent.putExtra(EXTRA_REQUEST_ID, requestId);
+        intent.putExtra(EXTRA_ERROR_CODE, code);
+        intent.putExtra(EXTRA_ERROR_MESSAGE, message);
+        context.sendBroadcast(intent);
+    }
+
+    public static Ring current() {
+        return current.get();
+    }
+
+    /**
+     * Add a fire to the current ring if it is still active and started within the window
+     * @return the ring joined, or null if this fire needs its own
+     */
+    static Ring tryJoin(String alarmId, String policyId, String audioPath, long now) {
+        long windowMs = coalesceWindowMs >= 0 ? coalesceWindowMs : DEFAULT_COALESCE_WINDOW_MS;
+        while (true) {
+            Ring ring = current.get();
+            if (!ring.isActive() || now - ring.startedAt > windowMs) {
+                return null;
+            }
+            if (ring.alarmIds.contains(alarmId)) {
+                return ring; // Duplicate fire - already part of it
+            }
+            if (current.compareAndSet(ring, ring.plus(alarmId, policyId, audioPath))) {
+                coalescedFires.incrementAndGet();
+                return current.get();
+            }
+        }
+    }
+
+    /**
+     * IDLE/any -> PREPARING: a new ring replaces whatever was there
+     * @param onReplaced gets the ring this one cut off, if one was still active
+     */
+    static Ring begin(String alarmId, String policyId, String audioPath, long now, Consumer<Ring> onReplaced) {
+        Ring ring = new Ring(State.PREPARING, generations.incrementAndGet(), now, audioPath,
+            Collections.<String>emptyList(), Collections.<String>emptyList(), Collections.<String>emptyList(), -1)
+            .plus(alarmId, policyId, audioPath);
+        Ring previous = current.getAndSet(ring);
+        if (previous.isActive()) {
+            Log.d(TAG, "🔀 Ring " + ring.generation + " replaces ring " + previous.generation);
+            onReplaced.accept(previous);
+        }
+        sessionsStarted.incrementAndGet();
+        return ring;
+    }
+
+    /**
+     * PREPARING -> RINGING for this generation
+     * @return the ring now sounding, or null if it was stopped or replaced first
+     */
+    static Ring markRinging(long generation) {
+        while (true) {
+            Ring ring = current.get();
+            if (ring.generation != generation || ring.state != State.PREPARING) {
+                return ring.generation == generation && ring.state == State.RINGING ? ring : null;
+            }
+            Ring ringing = ring.withState(State.RINGING);
+            if (current.compareAndSet(ring, ringing)) {
+                return ringing;
+            }
+        }
+    }
+
+    /**
+     * PREPARING/RINGING -> STOPPING for the ring containing this alarm
+     * @param alarmId alarm in the ring, or null for any ring
+     * @return the ring as it was before stopping, or null if there is nothing to stop
+     */
+    static Ring beginStop(String alarmId) {
+        while (true) {
+            Ring ring = current.get();
+            if (!ring.isActive() || (alarmId != null && !ring.alarmIds.contains(alarmId))) {
+                return null;
+            }
+            if (current.compareAndSet(ring, ring.withState(State.STOPPING))) {
+                return ring;
+            }
+        }
+    }
+
+    /**
+     * Read the current ring's snooze budget into memory ahead of a snooze, so
+     * a tap can tell there are none left without touching the disk. Reads the
+     * registry - call off the main thread.
+     */
+    static void loadSnoozeBudget(Context context) {
+        Ring ring = current.get();
+        if (!ring.isActive() || ring.snoozesLeft >= 0) {
+            return;
+        }
+        String rootId = ring.policyIds.get(0);
+        AlarmRingPolicy policy = AlarmRingPolicy.forAlarm(context, rootId);
+        loadSnoozesLeft(ring.generation, AlarmRingPolicy.snoozesLeft(context, rootId, policy));
+    }
+
+    /**
+     * @return true if this alarm is ringing and known to have no snoozes left - in memory only
+     */
+    static boolean isOutOfSnoozes(String alarmId) {
+        Ring ring = current.get();
+        return ring.isActive() && ring.snoozesLeft == 0 && (alarmId == null || ring.alarmIds.contains(alarmId));
+    }
+
+    /**
+     * Record how many snoozes this ring has, read from the registry, unless already known
+     */
+    private static void loadSnoozesLeft(long generation, int left) {
+        while (true) {
+            Ring ring = current.get();
+            if (ring.generation != generation || ring.snoozesLeft >= 0) {
+                return;
+            }
+            if (current.compareAndSet(ring, ring.withSnoozesLeft(left))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * PREPARING/RINGING -> STOPPING for a user snooze, only if the ring has a
+     * snooze left, which it uses up. Checking and stopping in one step means
+     * two snoozes at once can't both get through on the last one.
+     * @param alarmId alarm in the ring, or null for any ring
+     * @return the ring as it was before stopping; the ring unchanged if its
+     *   snoozesLeft is 0 (none left) or -1 (not loaded yet); or null if there
+     *   is nothing to snooze
+     */
+    static Ring beginSnooze(String alarmId) {
+        while (true) {
+            Ring ring = current.get();
+            if (!ring.isActive() || (alarmId != null && !ring.alarmIds.contains(alarmId))) {
+                return null;
+            }
+            if (ring.snoozesLeft <= 0) {
+                return ring;
+            }
+            Ring stopping = ring.withState(State.STOPPING).withSnoozesLeft(ring.snoozesLeft - 1);
+            if (current.compareAndSet(ring, stopping)) {
+                return ring;
+            }
+        }
+    }
+
+    /**
+     * PREPARING/RINGING -> STOPPING for this generation - the ring policy ending an unattended ring
+     */
+    static Ring beginStop(long generation) {
+        while (true) {
+            Ring ring = current.get();
+            if (!ring.isActive() || ring.generation != generation) {
+                return null;
+            }
+            if (current.compareAndSet(ring, ring.withState(State.STOPPING))) {
+                return ring;
+            }
+        }
+    }
+
+    /**
+     * Back to IDLE, unless a newer ring has started since
+     * @return true if nothing is ringing any more
+     */
+    static boolean finish(long generation) {
+        while (true) {
+            Ring ring = current.get();
+            if (ring.generation != generation) {
+                return ring.state == State.IDLE;
+            }
+            if (current.compareAndSet(ring, NONE)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * The service is gone - nothing can be ringing
+     */
+    static void reset() {
+        current.set(NONE);
+    }
+
+    /**
+     * Write the current ring's alarm to the registry for getRingingAlarmId,
+     * or clear it when nothing rings. Called after every transition into or
+     * out of an active ring, and before that transition's events are queued,
+     * so JS reading it on an event sees the new state. Synchronized so the
+     * last write is always the latest state.
+     */
+    static synchronized void publishRinging(Context context) {
+        Ring ring = current.get();
+        AlarmRegistry registry = AlarmRegistry.getInstance(context);
+        if (ring.isActive()) {
+            long startedAtWall = System.currentTimeMillis() - (SystemClock.elapsedRealtime() - ring.startedAt);
+            registry.putSetting(SETTING_RINGING, startedAtWall + "|" + ring.primaryId());
+        } else {
+            registry.removeSetting(SETTING_RINGING);
+        }
+    }
+
+    /**
+     * Alarm that started the current ring, or null when nothing rings. Reads
+     * what the alarm process last published, so it works from any process
+     * without starting the alarm one. A ring can't outlast the ringing wake
+     * lock, so an entry older than that was left by a killed process.
+     */
+    public static String getRingingAlarmId(Context context) {
+        String published = AlarmRegistry.getInstance(context).getSetting(SETTING_RINGING, null);
+        if (published == null) {
+            return null;
+        }
+        int separator = published.indexOf('|');
+        long startedAtWall = Long.parseLong(published.substring(0, separator));
+        if (System.currentTimeMillis() - startedAtWall > AlarmWakeLocks.RINGING_MAX_MS) {
+            return null;
+        }
+        return published.substring(separator + 1);
+    }
+
+    public static int getSessionsStarted() {
+        return sessionsStarted.get();
+    }
+
+    public static int getCoalescedFires() {
+        return coalescedFires.get();
+    }
+
+    /**
+     * Reads the registry - call off the main thread
+     */
+    public static long getCoalesceWindowMs(Context context) {
+        long windowMs = Long.parseLong(AlarmRegistry.getInstance(context).getSetting(
+            SETTING_COALESCE_WINDOW_MS, String.valueOf(DEFAULT_COALESCE_WINDOW_MS)));
+        coalesceWindowMs = windowMs;
+        return windowMs;
+    }
+
+    /**
+     * @param windowMs fires this close to a ringing alarm's start join it; 0 disables merging
+     */
+    public static void setCoalesceWindowMs(Context context, long windowMs) {
+        if (windowMs < 0 || windowMs > MAX_COALESCE_WINDOW_MS) {
+            throw new IllegalArgumentException("Coalescing window must be 0-" + MAX_COALESCE_WINDOW_MS + "ms");
+        }
+        AlarmRegistry.getInstance(context).putSetting(SETTING_COALESCE_WINDOW_MS, String.valueOf(windowMs));
+        coalesceWindowMs = windowMs;
+    }
+}
@@ -0,0 +1,172 @@
+package com.shakshamkarki.practice;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.media.MediaPlayer;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Prepared MediaPlayers kept idle between uses, keyed by audio URI.
+ *
+ * Fed by the pre-fire warm-up and by AlarmAudioService when an alarm is
+ * stopped or snoozed, so a snooze re-fire (or the next alarm using the same
+ * recording) skips decoder setup and only calls start(). Idle players expire
+ * after a while and are all released when the system asks to trim memory.
+ */
+public class AlarmPlayerPool implements ComponentCallbacks2 {
+    private static final String TAG = "AlarmPlayerPool";
+
+    private static final int MAX_IDLE_PLAYERS = 2;
+    /** Long enough to span a snooze cycle */
+    static final long RECYCLE_KEEP_MS = 10 * 60 * 1000;
+
+    /** A prepared player handed out by acquire() */
+    public static class Lease {
+        public final MediaPlayer player;
+        /** Setup time this player originally took - what a hit saves */
+        public final long prepareMs;
+
+        Lease(MediaPlayer player, long prepareMs) {
+            this.player = player;
+            this.prepareMs = prepareMs;
+        }
+    }
+
+    private static class Idle {
+        final MediaPlayer player;
+        final long prepareMs;
+        final long expiresAt;
+
+        Idle(MediaPlayer player, long prepareMs, long expiresAt) {
+            this.player = player;
+            this.prepareMs = prepareMs;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static AlarmPlayerPool instance;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    // Insertion order doubles as LRU order for eviction
+    private final LinkedHashMap<String, Idle> idle = new LinkedHashMap<>();
+    private int hits;
+    private int misses;
+
+    public static synchronized AlarmPlayerPool get(Context context) {
+        if (instance == null) {
+            instance = new AlarmPlayerPool();
+            context.getApplicationContext().registerComponentCallbacks(instance);
+        }
+        return instance;
+    }
+
+    /**
+     * Take the idle player for this audio, if any. Counts a hit or a miss.
+     */
+    public synchronized Lease acquire(String audioUri) {
+        Idle entry = audioUri != null ? idle.remove(audioUri) : null;
+        if (entry == null) {
+            misses++;
+            Log.d(TAG, "🥶 Pool miss (" + hits + " hits / " + misses + " misses)");
+            return null;
+        }
+        hits++;
+        Log.d(TAG, "♻️ Pool hit (" + hits + " hits / " + misses + " misses)");
+        return new Lease(entry.player, entry.prepareMs);
+    }
+
+    /**
+     * Park a prepared, idle player for up to keepMs
+     */
+    public synchronized void offer(String audioUri, MediaPlayer player, long prepareMs, long keepMs) {
+        Idle previous = idle.remove(audioUri);
+        if (previous != null && previous.player != player) {
+            previous.player.release();
+        }
+        idle.put(audioUri, new Idle(player, prepareMs, SystemClock.elapsedRealtime() + keepMs));
+
+        while (idle.size() > MAX_IDLE_PLAYERS) {
+            Iterator<Map.Entry<String, Idle>> oldest = idle.entrySet().iterator();
+            oldest.next().getValue().player.release();
+            oldest.remove();
+        }
+        handler.postDelayed(this::evictExpired, keepMs);
+    }
+
+    /**
+     * Return a player that was ringing. Paused and rewound rather than stopped,
+     * so it stays in the Prepared state and can start() again immediately.
+     */
+    public void recycle(String audioUri, MediaPlayer player, long prepareMs) {
+        try {
+            player.setOnPreparedListener(null);
+            player.setOnErrorListener(null);
+            player.setOnCompletionListener(null);
+            if (player.isPlaying()) {
+                player.pause();
+            }
+            player.seekTo(0);
+        } catch (IllegalStateException e) {
+            Log.w(TAG, "Player not reusable, releasing", e);
+            player.release();
+            return;
+        }
+        offer(audioUri, player, prepareMs, RECYCLE_KEEP_MS);
+    }
+
+    public synchronized void clear() {
+        for (Idle entry : idle.values()) {
+            entry.player.release();
+        }
+        if (!idle.isEmpty()) {
+            Log.d(TAG, "🧹 Released " + idle.size() + " pooled players");
+        }
+        idle.clear();
+    }
+
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    private synchronized void evictExpired() {
+        long now = SystemClock.elapsedRealtime();
+        Iterator<Idle> it = idle.values().iterator();
+        while (it.hasNext()) {
+            Idle entry = it.next();
+            if (entry.expiresAt <= now) {
+                entry.player.release();
+                it.remove();
+            }
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        // UI_HIDDEN only means the app went to the background - exactly when warm players matter
+        if (level == TRIM_MEMORY_UI_HIDDEN || level < TRIM_MEMORY_RUNNING_LOW) {
+            return;
+        }
+        clear();
+    }
+
+    @Override
+    public void onLowMemory() {
+        clear();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+}
@@ -0,0 +1,228 @@
+package com.shakshamkarki.practice;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import androidx.core.content.ContextCompat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Main-process side of the ":alarm" process.
+ *
+ * The receivers, AlarmAudioService and AlarmActivity run in their own small
+ * process, so React Native's heap can't get a ringing alarm killed and a cold
+ * fire doesn't start the whole app. Persisted state (registry, metrics file)
+ * is shared through disk and events come back as package broadcasts. What
+ * lives only in the alarm process's memory - AlarmPlayback's ring, the player
+ * pool, wake locks and receiver timings - is reached through
+ * AlarmProcessProvider with the calls below. A call starts the alarm process
+ * if it isn't running.
+ */
+public class AlarmProcess {
+    private static final String TAG = "AlarmProcess";
+
+    static final String AUTHORITY_SUFFIX = ".alarmprocess";
+
+    static final String METHOD_START = "start";
+    static final String METHOD_STOP = "stop";
+    static final String METHOD_STATUS = "status";
+    static final String METHOD_RELOAD_SETTINGS = "reload_settings";
+    static final String METHOD_WATCH_MAIN_THREAD_IO = "watch_main_thread_io";
+
+    static final String KEY_ALARM_ID = "alarm_id";
+    static final String KEY_AUDIO_PATH = "audio_path";
+    static final String KEY_REQUEST_ID = "request_id";
+    static final String KEY_ERROR = "error";
+    static final String KEY_STOPPED = "stopped";
+    static final String KEY_PID = "pid";
+    static final String KEY_RSS_KB = "rss_kb";
+    static final String KEY_REACT_NATIVE_LIBRARIES = "react_native_libraries";
+    static final String KEY_SESSIONS_STARTED = "sessions_started";
+    static final String KEY_COALESCED_FIRES = "coalesced_fires";
+    static final String KEY_POOL_HITS = "pool_hits";
+    static final String KEY_POOL_MISSES = "pool_misses";
+    static final String KEY_WORK_ACTIONS = "work_actions";
+    static final String KEY_WORK_COUNTS = "work_counts";
+    static final String KEY_WORK_TIMES = "work_times";
+    static final String KEY_HOLD_ALARMS = "hold_alarms";
+    static final String KEY_HOLD_REASONS = "hold_reasons";
+    static final String KEY_HOLD_COUNTS = "hold_counts";
+    static final String KEY_HOLD_TIMES = "hold_times";
+    static final String KEY_MAIN_THREAD_IO = "main_thread_io";
+
+    /** Covers a cold service start, a slow prepare and the service's own first-frame timeout */
+    static final long START_RESULT_TIMEOUT_MS = 15 * 1000;
+
+    private static final AtomicLong startRequests = new AtomicLong();
+
+    /** Outcome of startAndAwait, delivered on the main thread exactly once */
+    public interface StartCallback {
+        /**
+         * @param timeToFirstAudioMs from the start command to the first frame leaving the player
+         * @param source "pcm", "pooled", "cold" or "default" - how the audio was opened
+         */
+        void onFirstAudio(long timeToFirstAudioMs, String source);
+
+        void onFailure(String code, String message);
+    }
+
+    /** Snapshot of the alarm process's in-memory state */
+    public static class Status {
+        public final int pid;
+        public final long rssKb;
+        /** React Native native libraries mapped into the alarm process - should always be empty */
+        public final List<String> reactNativeLibraries;
+        public final int sessionsStarted;
+        public final int coalescedFires;
+        public final int poolHits;
+        public final int poolMisses;
+        public final List<AlarmReceiverWork.Stat> receiverWork;
+        public final List<AlarmWakeLocks.Active> activeWakeLocks;
+        /** Disk access on the main thread since watchMainThreadIo - debug builds only */
+        public final List<String> mainThreadIo;
+
+        Status(Bundle bundle) {
+            pid = bundle.getInt(KEY_PID);
+            rssKb = bundle.getLong(KEY_RSS_KB);
+            reactNativeLibraries = bundle.getStringArrayList(KEY_REACT_NATIVE_LIBRARIES);
+            mainThreadIo = bundle.getStringArrayList(KEY_MAIN_THREAD_IO);
+            sessionsStarted = bundle.getInt(KEY_SESSIONS_STARTED);
+            coalescedFires = bundle.getInt(KEY_COALESCED_FIRES);
+            poolHits = bundle.getInt(KEY_POOL_HITS);
+            poolMisses = bundle.getInt(KEY_POOL_MISSES);
+
+            receiverWork = new ArrayList<>();
+            String[] actions = bundle.getStringArray(KEY_WORK_ACTIONS);
+            int[] counts = bundle.getIntArray(KEY_WORK_COUNTS);
+            long[] times = bundle.getLongArray(KEY_WORK_TIMES);
+            for (int i = 0; i < actions.length; i++) {
+                receiverWork.add(new AlarmReceiverWork.Stat(actions[i], counts[i],
+                    times[i * 4], times[i * 4 + 1], times[i * 4 + 2], times[i * 4 + 3]));
+            }
+
+            activeWakeLocks = new ArrayList<>();
+            String[] alarms = bundle.getStringArray(KEY_HOLD_ALARMS);
+            String[] reasons = bundle.getStringArray(KEY_HOLD_REASONS);
+            int[] holdCounts = bundle.getIntArray(KEY_HOLD_COUNTS);
+            long[] holdTimes = bundle.getLongArray(KEY_HOLD_TIMES);
+            for (int i = 0; i < alarms.length; i++) {
+                activeWakeLocks.add(new AlarmWakeLocks.Active(alarms[i], reasons[i], holdCounts[i],
+                    holdTimes[i * 2], holdTimes[i * 2 + 1]));
+            }
+        }
+    }
+
+    /**
+     * Start a ring in the alarm process and report when its audio is actually
+     * out, not just when the command was sent
+     */
+    public static void startAndAwait(Context context, String alarmId, String audioPath, StartCallback callback) {
+        Context appContext = context.getApplicationContext();
+        long requestId = startRequests.incrementAndGet();
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        // Receiver and timeout both run on the main thread, so settling needs no lock
+        boolean[] settled = new boolean[1];
+        BroadcastReceiver[] receiver = new BroadcastReceiver[1];
+        Runnable timeout = () -> {
+            if (!settled[0]) {
+                settled[0] = true;
+                appContext.unregisterReceiver(receiver[0]);
+                callback.onFailure("TIMEOUT", "No audio within " + START_RESULT_TIMEOUT_MS + "ms of the start command");
+            }
+        };
+        receiver[0] = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context ctx, Intent intent) {
+                if (settled[0] || intent.getLongExtra(AlarmPlayback.EXTRA_REQUEST_ID, 0) != requestId) {
+                    return;
+                }
+                settled[0] = true;
+                mainHandler.removeCallbacks(timeout);
+                appContext.unregisterReceiver(this);
+                String errorCode = intent.getStringExtra(AlarmPlayback.EXTRA_ERROR_CODE);
+                if (errorCode != null) {
+                    callback.onFailure(errorCode, intent.getStringExtra(AlarmPlayback.EXTRA_ERROR_MESSAGE));
+                } else {
+                    callback.onFirstAudio(intent.getLongExtra(AlarmPlayback.EXTRA_FIRST_AUDIO_MS, 0),
+                        intent.getStringExtra(AlarmPlayback.EXTRA_SOURCE));
+                }
+            }
+        };
+        // The alarm process reports back with a package broadcast, which reaches this process too
+        ContextCompat.registerReceiver(appContext, receiver[0], new IntentFilter(AlarmPlayback.ACTION_START_RESULT),
+            ContextCompat.RECEIVER_NOT_EXPORTED);
+        mainHandler.postDelayed(timeout, START_RESULT_TIMEOUT_MS);
+
+        String error;
+        try {
+            Bundle extras = new Bundle();
+            extras.putString(KEY_ALARM_ID, alarmId);
+            extras.putString(KEY_AUDIO_PATH, audioPath);
+            extras.putLong(KEY_REQUEST_ID, requestId);
+            error = call(appContext, METHOD_START, null, extras).getString(KEY_ERROR);
+        } catch (Exception e) {
+            error = e.getMessage();
+        }
+        if (error != null) {
+            // E.g. ForegroundServiceStartNotAllowedException in the alarm process
+            String message = error;
+            mainHandler.post(() -> {
+                if (!settled[0]) {
+                    settled[0] = true;
+                    mainHandler.removeCallbacks(timeout);
+                    appContext.unregisterReceiver(receiver[0]);
+                    callback.onFailure("START_FAILED", message);
+                }
+            });
+        }
+    }
+
+    /**
+     * AlarmPlayback.stop in the alarm process
+     * @param alarmId alarm the user dismissed, or null for whatever is ringing
+     * @return the alarms stopped - empty if nothing was ringing
+     */
+    public static List<String> stop(Context context, String alarmId) {
+        List<String> stopped = call(context, METHOD_STOP, alarmId, null).getStringArrayList(KEY_STOPPED);
+        return stopped != null ? stopped : Collections.<String>emptyList();
+    }
+
+    public static Status getStatus(Context context) {
+        return new Status(call(context, METHOD_STATUS, null, null));
+    }
+
+    /**
+     * Tell the alarm process a setting it caches in memory was changed in the registry
+     */
+    public static void reloadSettings(Context context) {
+        call(context, METHOD_RELOAD_SETTINGS, null, null);
+    }
+
+    /**
+     * Debug builds: record every disk read or write on the alarm process's
+     * main thread from now on, reported in Status.mainThreadIo. Needs Android 9.
+     */
+    public static void watchMainThreadIo(Context context) {
+        call(context, METHOD_WATCH_MAIN_THREAD_IO, null, null);
+    }
+
+    private static Bundle call(Context context, String method, String arg, Bundle extras) {
+        Uri uri = Uri.parse("content://" + context.getPackageName() + AUTHORITY_SUFFIX);
+        Bundle result = context.getContentResolver().call(uri, method, arg, extras);
+        if (result == null) {
+            Log.w(TAG, "No reply from alarm process for " + method);
+            throw new IllegalStateException("Alarm process unavailable");
+        }
+        return result;
+    }
+}
@@ -0,0 +1,219 @@
+package com.shakshamkarki.practice;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.StrictMode;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs in the ":alarm" process and answers AlarmProcess calls from the main
+ * process. Not exported, so only this app can call it. Only call() is
+ * supported - there is no table behind it.
+ */
+public class AlarmProcessProvider extends ContentProvider {
+    private static final String TAG = "AlarmProcessProvider";
+
+    /** Any of these mapped means React Native was loaded into the alarm process */
+    private static final String[] REACT_NATIVE_LIBRARIES = {
+        "libreactnative", "libhermes", "libjsi", "libjscexecutor", "libfbjni"
+    };
+
+    private static final long WATCH_TIMEOUT_MS = 5000;
+
+    /** StrictMode violations on the main thread since watchMainThreadIo */
+    private static final List<String> mainThreadIo = new CopyOnWriteArrayList<>();
+
+    @Override
+    public boolean onCreate() {
+        // Created with the process - keep it empty so it adds nothing to a cold fire
+        return true;
+    }
+
+    @Override
+    public Bundle call(String method, String arg, Bundle extras) {
+        Context context = getContext();
+        Bundle result = new Bundle();
+        switch (method) {
+            case AlarmProcess.METHOD_START:
+                try {
+                    String alarmId = extras.getString(AlarmProcess.KEY_ALARM_ID);
+                    AlarmPlayback.start(context, alarmId, extras.getString(AlarmProcess.KEY_AUDIO_PATH), alarmId, 0,
+                        extras.getLong(AlarmProcess.KEY_REQUEST_ID));
+                } catch (Exception e) {
+                    Log.e(TAG, "Failed to start alarm for the main process", e);
+                    result.putString(AlarmProcess.KEY_ERROR, e.getMessage());
+                }
+                return result;
+            case AlarmProcess.METHOD_STOP:
+                result.putStringArrayList(AlarmProcess.KEY_STOPPED, new ArrayList<>(AlarmPlayback.stop(context, arg)));
+                return result;
+            case AlarmProcess.METHOD_STATUS:
+                putStatus(context, result);
+                return result;
+            case AlarmProcess.METHOD_RELOAD_SETTINGS:
+                AlarmPlayback.getCoalesceWindowMs(context);
+                return result;
+            case AlarmProcess.METHOD_WATCH_MAIN_THREAD_IO:
+                watchMainThreadIo();
+                return result;
+            default:
+                throw new IllegalArgumentException("Unknown alarm process call: " + method);
+        }
+    }
+
+    private static void putStatus(Context context, Bundle result) {
+        result.putInt(AlarmProcess.KEY_PID, Process.myPid());
+        result.putLong(AlarmProcess.KEY_RSS_KB, readRssKb());
+        result.putStringArrayList(AlarmProcess.KEY_REACT_NATIVE_LIBRARIES, findReactNativeLibraries());
+        result.putStringArrayList(AlarmProcess.KEY_MAIN_THREAD_IO, new ArrayList<>(mainThreadIo));
+        result.putInt(AlarmProcess.KEY_SESSIONS_STARTED, AlarmPlayback.getSessionsStarted());
+        result.putInt(AlarmProcess.KEY_COALESCED_FIRES, AlarmPlayback.getCoalescedFires());
+        AlarmPlayerPool pool = AlarmPlayerPool.get(context);
+        result.putInt(AlarmProcess.KEY_POOL_HITS, pool.getHits());
+        result.putInt(AlarmProcess.KEY_POOL_MISSES, pool.getMisses());
+
+        // Bundles can't hold our classes across processes - flatten to parallel arrays
+        List<AlarmReceiverWork.Stat> work = AlarmReceiverWork.getStats();
+        String[] actions = new String[work.size()];
+        int[] counts = new int[work.size()];
+        long[] times = new long[work.size() * 4];
+        for (int i = 0; i < work.size(); i++) {
+            AlarmReceiverWork.Stat stat = work.get(i);
+            actions[i] = stat.action;
+            counts[i] = stat.count;
+            times[i * 4] = stat.avgWaitMs;
+            times[i * 4 + 1] = stat.maxWaitMs;
+            times[i * 4 + 2] = stat.avgRunMs;
+            times[i * 4 + 3] = stat.maxRunMs;
+        }
+        result.putStringArray(AlarmProcess.KEY_WORK_ACTIONS, actions);
+        result.putIntArray(AlarmProcess.KEY_WORK_COUNTS, counts);
+        result.putLongArray(AlarmProcess.KEY_WORK_TIMES, times);
+
+        List<AlarmWakeLocks.Active> holds = AlarmWakeLocks.getActive();
+        String[] alarms = new String[holds.size()];
+        String[] reasons = new String[holds.size()];
+        int[] holdCounts = new int[holds.size()];
+        long[] holdTimes = new long[holds.size() * 2];
+        for (int i = 0; i < holds.size(); i++) {
+            AlarmWakeLocks.Active hold = holds.get(i);
+            alarms[i] = hold.alarmId;
+            reasons[i] = hold.reason;
+            holdCounts[i] = hold.count;
+            holdTimes[i * 2] = hold.heldMs;
+            holdTimes[i * 2 + 1] = hold.remainingMs;
+        }
+        result.putStringArray(AlarmProcess.KEY_HOLD_ALARMS, alarms);
+        result.putStringArray(AlarmProcess.KEY_HOLD_REASONS, reasons);
+        result.putIntArray(AlarmProcess.KEY_HOLD_COUNTS, holdCounts);
+        result.putLongArray(AlarmProcess.KEY_HOLD_TIMES, holdTimes);
+    }
+
+    /**
+     * For AlarmFirePathStrictModeTest: a StrictMode listener on this process's
+     * main thread, installed before the call returns
+     */
+    private static void watchMainThreadIo() {
+        if (!BuildConfig.DEBUG || Build.VERSION.SDK_INT < Build.VERSION_CODES.P) {
+            throw new UnsupportedOperationException("Main thread I/O watch needs a debug build on Android 9+");
+        }
+        mainThreadIo.clear();
+        CountDownLatch installed = new CountDownLatch(1);
+        new Handler(Looper.getMainLooper()).post(() -> {
+            StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                .detectDiskReads()
+                .detectDiskWrites()
+                .penaltyListener(Runnable::run, violation ->
+                    mainThreadIo.add(Log.getStackTraceString(violation)))
+                .build());
+            installed.countDown();
+        });
+        try {
+            if (!installed.await(WATCH_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Alarm process main thread is stuck");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Resident set size of this process, from /proc/self/status
+    private static long readRssKb() {
+        try (BufferedReader reader = new BufferedReader(new FileReader("/proc/self/status"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to read RSS", e);
+        }
+        return 0;
+    }
+
+    // React Native libraries mapped into this process, from /proc/self/maps
+    private static ArrayList<String> findReactNativeLibraries() {
+        ArrayList<String> found = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader("/proc/self/maps"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int slash = line.lastIndexOf('/');
+                if (slash < 0) {
+                    continue;
+                }
+                String library = line.substring(slash + 1);
+                for (String prefix : REACT_NATIVE_LIBRARIES) {
+                    if (library.startsWith(prefix) && !found.contains(library)) {
+                        found.add(library);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to read memory maps", e);
+        }
+        return found;
+    }
+
+    @Override
+    public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+        return null;
+    }
+
+    @Override
+    public String getType(Uri uri) {
+        return null;
+    }
+
+    @Override
+    public Uri insert(Uri uri, ContentValues values) {
+        return null;
+    }
+
+    @Override
+    public int delete(Uri uri, String selection, String[] selectionArgs) {
+        return 0;
+    }
+
+    @Override
+    public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+        return 0;
+    }
+}
@@ -0,0 +1,174 @@
+package com.shakshamkarki.practice;
+
+import android.content.BroadcastReceiver;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background executor shared by AlarmReceiver, AlarmActionReceiver and
+ * AlarmActivity's buttons.
+ *
+ * onReceive only copies its extras, calls goAsync() and hands the work here,
+ * so the main thread is free for AlarmActivity while the service start,
+ * AlarmManager calls and registry writes happen on a small fixed pool.
+ * Work for the same alarm runs one task at a time in arrival order (a fire
+ * and its stop can't overtake each other); different alarms run in parallel.
+ * The pool's queue is unbounded: each alarm has at most one task in it, the
+ * rest wait in its lane, and work never falls back to the receiver's main
+ * thread.
+ * Queue wait and run time are kept per action for getAlarmMetrics.
+ */
+public class AlarmReceiverWork {
+    private static final String TAG = "AlarmReceiverWork";
+
+    public static final String ACTION_FIRE = "fire";
+    public static final String ACTION_REARM = "rearm";
+    public static final String ACTION_STOP = "stop";
+    public static final String ACTION_SNOOZE = "snooze";
+    public static final String ACTION_SNOOZE_BUDGET = "snooze_budget";
+
+    private static final int THREADS = 2;
+
+    /** goAsync() receivers still have to finish within the broadcast timeout */
+    static final long BUDGET_MS = 8000;
+
+    /** Lane for work that isn't tied to one alarm */
+    private static final String NO_ALARM = "-";
+
+    /** Accumulated timings for one action since the process started */
+    public static class Stat {
+        public final String action;
+        public final int count;
+        public final long avgWaitMs;
+        public final long maxWaitMs;
+        public final long avgRunMs;
+        public final long maxRunMs;
+
+        Stat(String action, int count, long avgWaitMs, long maxWaitMs, long avgRunMs, long maxRunMs) {
+            this.action = action;
+            this.count = count;
+            this.avgWaitMs = avgWaitMs;
+            this.maxWaitMs = maxWaitMs;
+            this.avgRunMs = avgRunMs;
+            this.maxRunMs = maxRunMs;
+        }
+    }
+
+    // Never rejects, so no task can end up running on the main thread that queued it
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+        THREADS, THREADS, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+        runnable -> {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_FOREGROUND);
+                runnable.run();
+            }, "AlarmReceiverWork");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    static {
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /** Tasks waiting behind the one running for each alarm; present while that alarm is busy */
+    private static final Map<String, ArrayDeque<Runnable>> lanes = new HashMap<>();
+    /** Per action: count, total wait, max wait, total run, max run */
+    private static final Map<String, long[]> totals = new LinkedHashMap<>();
+
+    /**
+     * Run work that isn't a broadcast's, e.g. a tap, in the alarm's lane
+     */
+    public static void run(String action, String alarmId, Runnable work) {
+        run(null, action, alarmId, work);
+    }
+
+    /**
+     * Run a receiver's work off the main thread and finish its broadcast when done
+     * @param pendingResult from goAsync() in onReceive, or null outside a receiver
+     */
+    public static void run(BroadcastReceiver.PendingResult pendingResult, String action, String alarmId, Runnable work) {
+        final long queuedAt = SystemClock.elapsedRealtime();
+        final String lane = alarmId != null ? alarmId : NO_ALARM;
+
+        Runnable task = () -> {
+            long startedAt = SystemClock.elapsedRealtime();
+            try {
+                work.run();
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to " + action + " alarm " + alarmId, e);
+            } finally {
+                long waitMs = startedAt - queuedAt;
+                long runMs = SystemClock.elapsedRealtime() - startedAt;
+                record(action, waitMs, runMs);
+                if (waitMs + runMs > BUDGET_MS) {
+                    Log.w(TAG, "⚠️ " + action + " for " + alarmId + " took " + (waitMs + runMs)
+                        + "ms - close to the broadcast timeout");
+                }
+                if (pendingResult != null) {
+                    pendingResult.finish();
+                }
+                next(lane);
+            }
+        };
+
+        synchronized (lanes) {
+            ArrayDeque<Runnable> waiting = lanes.get(lane);
+            if (waiting != null) {
+                waiting.add(task);
+                return;
+            }
+            lanes.put(lane, new ArrayDeque<>());
+        }
+        executor.execute(task);
+    }
+
+    public static List<Stat> getStats() {
+        List<Stat> stats = new ArrayList<>();
+        synchronized (totals) {
+            for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+                long[] t = entry.getValue();
+                stats.add(new Stat(entry.getKey(), (int) t[0], t[1] / t[0], t[2], t[3] / t[0], t[4]));
+            }
+        }
+        return stats;
+    }
+
+    private static void next(String lane) {
+        Runnable task;
+        synchronized (lanes) {
+            task = lanes.get(lane).poll();
+            if (task == null) {
+                lanes.remove(lane);
+                return;
+            }
+        }
+        executor.execute(task);
+    }
+
+    private static void record(String action, long waitMs, long runMs) {
+        synchronized (totals) {
+            long[] t = totals.get(action);
+            if (t == null) {
+                t = new long[5];
+                totals.put(action, t);
+            }
+            t[0]++;
+            t[1] += waitMs;
+            t[2] = Math.max(t[2], waitMs);
+            t[3] += runMs;
+            t[4] = Math.max(t[4], runMs);
+        }
+        Log.d(TAG, "⏱️ " + action + " waited " + waitMs + "ms, ran " + runMs + "ms");
+    }
+}
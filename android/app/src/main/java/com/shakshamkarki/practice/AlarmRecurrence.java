@@ -0,0 +1,93 @@
+package com.shakshamkarki.practice;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Weekly recurrence rule: a set of weekdays at a wall-clock hour/minute.
+ * Computed natively so AlarmReceiver can re-arm the next occurrence
+ * without booting the JS runtime.
+ *
+ * Days use the JS DAYS order (bit 0 = Sun ... bit 6 = Sat). A null
+ * timeZoneId means "device local time", so alarms follow the user when the
+ * zone changes. A time skipped by spring-forward rings at the shifted
+ * instant (Calendar's lenient resolution). A time repeated by fall-back rings
+ * once, at its first occurrence - Calendar resolves it to the second one, so
+ * nextFireTime moves it back itself.
+ */
+public class AlarmRecurrence {
+    public static final int ALL_DAYS = 0x7F;
+
+    public final int daysMask;
+    public final int hour;
+    public final int minute;
+    public final String timeZoneId;
+
+    public AlarmRecurrence(int daysMask, int hour, int minute, String timeZoneId) {
+        if ((daysMask & ALL_DAYS) == 0) {
+            throw new IllegalArgumentException("Recurrence needs at least one day");
+        }
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            throw new IllegalArgumentException("Invalid time " + hour + ":" + minute);
+        }
+        this.daysMask = daysMask & ALL_DAYS;
+        this.hour = hour;
+        this.minute = minute;
+        this.timeZoneId = timeZoneId;
+    }
+
+    public boolean sameRule(AlarmRecurrence other) {
+        return other != null
+            && daysMask == other.daysMask
+            && hour == other.hour
+            && minute == other.minute
+            && (timeZoneId == null ? other.timeZoneId == null : timeZoneId.equals(other.timeZoneId));
+    }
+
+    /**
+     * First occurrence strictly after afterMs
+     */
+    public long nextFireTime(long afterMs) {
+        TimeZone zone = timeZoneId != null ? TimeZone.getTimeZone(timeZoneId) : TimeZone.getDefault();
+        Calendar day = Calendar.getInstance(zone);
+        day.setTimeInMillis(afterMs);
+
+        // Eight days covers "today, later" through "same weekday next week"
+        for (int offset = 0; offset <= 7; offset++) {
+            int dayIndex = day.get(Calendar.DAY_OF_WEEK) - Calendar.SUNDAY;
+            if ((daysMask & (1 << dayIndex)) != 0) {
+                Calendar candidate = Calendar.getInstance(zone);
+                candidate.clear();
+                candidate.set(day.get(Calendar.YEAR), day.get(Calendar.MONTH), day.get(Calendar.DAY_OF_MONTH),
+                    hour, minute, 0);
+                long candidateMs = firstOccurrence(candidate);
+                // Past the first occurrence of a repeated time means that day's ring is done
+                if (candidateMs > afterMs) {
+                    return candidateMs;
+                }
+            }
+            day.add(Calendar.DAY_OF_MONTH, 1);
+        }
+        throw new IllegalStateException("No occurrence found for mask " + daysMask);
+    }
+
+    /**
+     * Earlier instant with the same wall time if the clocks went back over
+     * this one, else the instant Calendar resolved
+     */
+    private static long firstOccurrence(Calendar resolved) {
+        TimeZone zone = resolved.getTimeZone();
+        long resolvedMs = resolved.getTimeInMillis();
+        int setBack = zone.getOffset(resolvedMs - 12 * 60 * 60 * 1000L) - zone.getOffset(resolvedMs);
+        if (setBack <= 0) {
+            return resolvedMs;
+        }
+        long earlierMs = resolvedMs - setBack;
+        Calendar earlier = Calendar.getInstance(zone);
+        earlier.setTimeInMillis(earlierMs);
+        boolean sameWallTime = earlier.get(Calendar.DAY_OF_MONTH) == resolved.get(Calendar.DAY_OF_MONTH)
+            && earlier.get(Calendar.HOUR_OF_DAY) == resolved.get(Calendar.HOUR_OF_DAY)
+            && earlier.get(Calendar.MINUTE) == resolved.get(Calendar.MINUTE);
+        return sameWallTime ? earlierMs : resolvedMs;
+    }
+}
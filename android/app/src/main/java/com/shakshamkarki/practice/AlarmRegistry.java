@@ -0,0 +1,448 @@
+package com.shakshamkarki.practice;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Disk-backed registry of every alarm handed to AlarmManager.
+ * Lets cancel-all / cancel-by-prefix walk only the live alarms instead of
+ * probing thousands of PendingIntent request codes.
+ */
+public class AlarmRegistry extends SQLiteOpenHelper {
+    private static final String TAG = "AlarmRegistry";
+    private static final String DATABASE_NAME = "native_alarms.db";
+    private static final int DATABASE_VERSION = 6;
+
+    private static final String TABLE_ALARMS = "alarms";
+    private static final String COL_ALARM_ID = "alarm_id";
+    private static final String COL_FIRE_TIME = "fire_time";
+    private static final String COL_AUDIO_PATH = "audio_path";
+    private static final String COL_ALARM_TIME = "alarm_time";
+    private static final String COL_PARENT_ID = "parent_id";
+    private static final String COL_DAYS_MASK = "days_mask";
+    private static final String COL_HOUR = "hour";
+    private static final String COL_MINUTE = "minute";
+    private static final String COL_TIME_ZONE = "time_zone";
+    private static final String COL_SYNCED = "synced";
+
+    private static final String TABLE_SETTINGS = "settings";
+    private static final String COL_KEY = "key";
+    private static final String COL_VALUE = "value";
+
+    private static final String TABLE_EVENTS = "events";
+    private static final String COL_EVENT_ID = "_id";
+    private static final String COL_TYPE = "type";
+    private static final String COL_AT = "at";
+
+    private static final String TABLE_WAKE_STATS = "wake_stats";
+    private static final String COL_REASON = "reason";
+    private static final String COL_HELD_MS = "held_ms";
+    private static final String COL_HOLDS = "holds";
+    private static final String COL_TIMEOUTS = "timeouts";
+
+    private static final String[] ALARM_COLUMNS = {
+        COL_ALARM_ID, COL_FIRE_TIME, COL_AUDIO_PATH, COL_ALARM_TIME, COL_PARENT_ID,
+        COL_DAYS_MASK, COL_HOUR, COL_MINUTE, COL_TIME_ZONE, COL_SYNCED
+    };
+
+    private static AlarmRegistry instance;
+
+    /**
+     * One registered alarm (or snooze, when parentId is set)
+     */
+    public static class Entry {
+        public final String alarmId;
+        public final long fireTimeMs;
+        public final String audioPath;
+        public final String alarmTime;
+        public final String parentId;
+        public final AlarmRecurrence recurrence;
+        /** True when the alarm is owned by syncAlarms' desired state */
+        public final boolean synced;
+
+        public Entry(String alarmId, long fireTimeMs, String audioPath, String alarmTime, String parentId) {
+            this(alarmId, fireTimeMs, audioPath, alarmTime, parentId, null, false);
+        }
+
+        public Entry(String alarmId, long fireTimeMs, String audioPath, String alarmTime, String parentId,
+                     AlarmRecurrence recurrence, boolean synced) {
+            this.alarmId = alarmId;
+            this.fireTimeMs = fireTimeMs;
+            this.audioPath = audioPath;
+            this.alarmTime = alarmTime;
+            this.parentId = parentId;
+            this.recurrence = recurrence;
+            this.synced = synced;
+        }
+
+        public Entry withFireTime(long newFireTimeMs) {
+            return new Entry(alarmId, newFireTimeMs, audioPath, alarmTime, parentId, recurrence, synced);
+        }
+    }
+
+    /**
+     * The soonest fire time and the row count, held in memory so JS can read
+     * them synchronously without a SQLite query on its thread
+     */
+    public static class Summary {
+        /** -1 when nothing is registered */
+        public final long nextFireTimeMs;
+        public final int count;
+
+        Summary(long nextFireTimeMs, int count) {
+            this.nextFireTimeMs = nextFireTimeMs;
+            this.count = count;
+        }
+    }
+
+    private volatile Summary summary;
+
+    public static synchronized AlarmRegistry getInstance(Context context) {
+        if (instance == null) {
+            instance = new AlarmRegistry(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private AlarmRegistry(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_ALARMS + " ("
+            + COL_ALARM_ID + " TEXT PRIMARY KEY NOT NULL, "
+            + COL_FIRE_TIME + " INTEGER NOT NULL, "
+            + COL_AUDIO_PATH + " TEXT, "
+            + COL_ALARM_TIME + " TEXT, "
+            + COL_PARENT_ID + " TEXT, "
+            + COL_DAYS_MASK + " INTEGER NOT NULL DEFAULT 0, "
+            + COL_HOUR + " INTEGER NOT NULL DEFAULT 0, "
+            + COL_MINUTE + " INTEGER NOT NULL DEFAULT 0, "
+            + COL_TIME_ZONE + " TEXT, "
+            + COL_SYNCED + " INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("CREATE INDEX idx_alarms_parent ON " + TABLE_ALARMS + " (" + COL_PARENT_ID + ")");
+        createFireTimeIndexAndSettings(db);
+        createEvents(db);
+        createWakeStats(db);
+        Log.d(TAG, "📒 Alarm registry created");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            db.execSQL("ALTER TABLE " + TABLE_ALARMS + " ADD COLUMN " + COL_DAYS_MASK + " INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE " + TABLE_ALARMS + " ADD COLUMN " + COL_HOUR + " INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE " + TABLE_ALARMS + " ADD COLUMN " + COL_MINUTE + " INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE " + TABLE_ALARMS + " ADD COLUMN " + COL_TIME_ZONE + " TEXT");
+        }
+        if (oldVersion < 3) {
+            createFireTimeIndexAndSettings(db);
+        }
+        if (oldVersion < 4) {
+            db.execSQL("ALTER TABLE " + TABLE_ALARMS + " ADD COLUMN " + COL_SYNCED + " INTEGER NOT NULL DEFAULT 0");
+        }
+        if (oldVersion < 5) {
+            createEvents(db);
+        }
+        if (oldVersion < 6) {
+            createWakeStats(db);
+        }
+    }
+
+    private void createFireTimeIndexAndSettings(SQLiteDatabase db) {
+        // fire_time index makes the table a persistent priority queue for single-armed mode
+        db.execSQL("CREATE INDEX idx_alarms_fire_time ON " + TABLE_ALARMS + " (" + COL_FIRE_TIME + ")");
+        db.execSQL("CREATE TABLE " + TABLE_SETTINGS + " ("
+            + COL_KEY + " TEXT PRIMARY KEY NOT NULL, "
+            + COL_VALUE + " TEXT)");
+    }
+
+    private void createEvents(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_EVENTS + " ("
+            + COL_EVENT_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+            + COL_TYPE + " TEXT NOT NULL, "
+            + COL_ALARM_ID + " TEXT, "
+            + COL_AT + " INTEGER NOT NULL, "
+            + COL_FIRE_TIME + " INTEGER)");
+    }
+
+    private void createWakeStats(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_WAKE_STATS + " ("
+            + COL_ALARM_ID + " TEXT NOT NULL, "
+            + COL_REASON + " TEXT NOT NULL, "
+            + COL_HELD_MS + " INTEGER NOT NULL DEFAULT 0, "
+            + COL_HOLDS + " INTEGER NOT NULL DEFAULT 0, "
+            + COL_TIMEOUTS + " INTEGER NOT NULL DEFAULT 0, "
+            + "PRIMARY KEY (" + COL_ALARM_ID + ", " + COL_REASON + "))");
+    }
+
+    public void put(Entry entry) {
+        ContentValues values = new ContentValues();
+        values.put(COL_ALARM_ID, entry.alarmId);
+        values.put(COL_FIRE_TIME, entry.fireTimeMs);
+        values.put(COL_AUDIO_PATH, entry.audioPath);
+        values.put(COL_ALARM_TIME, entry.alarmTime);
+        values.put(COL_PARENT_ID, entry.parentId);
+        if (entry.recurrence != null) {
+            values.put(COL_DAYS_MASK, entry.recurrence.daysMask);
+            values.put(COL_HOUR, entry.recurrence.hour);
+            values.put(COL_MINUTE, entry.recurrence.minute);
+            values.put(COL_TIME_ZONE, entry.recurrence.timeZoneId);
+        }
+        values.put(COL_SYNCED, entry.synced ? 1 : 0);
+        SQLiteDatabase db = getWritableDatabase();
+        db.insertWithOnConflict(TABLE_ALARMS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+        alarmsChanged(db);
+    }
+
+    public Entry get(String alarmId) {
+        List<Entry> entries = query(COL_ALARM_ID + " = ?", new String[]{alarmId});
+        return entries.isEmpty() ? null : entries.get(0);
+    }
+
+    public int count() {
+        return (int) DatabaseUtils.queryNumEntries(getReadableDatabase(), TABLE_ALARMS);
+    }
+
+    public List<Entry> getAll() {
+        return query(null, null);
+    }
+
+    /**
+     * Prefix match without LIKE, so '_' and '%' in alarm IDs are taken literally
+     */
+    public List<Entry> getByPrefix(String prefix) {
+        return query("substr(" + COL_ALARM_ID + ", 1, ?) = ?",
+            new String[]{String.valueOf(prefix.length()), prefix});
+    }
+
+    /**
+     * Soonest registered alarm, or null when the registry is empty
+     */
+    public Entry getNextDue() {
+        List<Entry> entries = query(null, null, COL_FIRE_TIME + " ASC", "1");
+        return entries.isEmpty() ? null : entries.get(0);
+    }
+
+    /**
+     * Top-level alarms previously written by syncAlarms
+     */
+    public List<Entry> getSynced() {
+        return query(COL_SYNCED + " = 1", null);
+    }
+
+    /**
+     * @return false if there was no such alarm
+     */
+    public boolean remove(String alarmId) {
+        SQLiteDatabase db = getWritableDatabase();
+        boolean removed = db.delete(TABLE_ALARMS, COL_ALARM_ID + " = ?", new String[]{alarmId}) > 0;
+        alarmsChanged(db);
+        return removed;
+    }
+
+    public void removeAll() {
+        SQLiteDatabase db = getWritableDatabase();
+        db.delete(TABLE_ALARMS, null, null);
+        alarmsChanged(db);
+    }
+
+    /**
+     * Last loaded summary - only the first call after the process starts reads the disk
+     */
+    public Summary getSummary() {
+        Summary current = summary;
+        return current != null ? current : reloadSummary();
+    }
+
+    /**
+     * Re-read the summary. Writes from this process do this themselves; call
+     * it when another process may have changed the alarms.
+     */
+    public synchronized Summary reloadSummary() {
+        Entry next = getNextDue();
+        summary = new Summary(next != null ? next.fireTimeMs : -1, count());
+        return summary;
+    }
+
+    /** Writes inside runInTransaction reload once, after the commit */
+    private void alarmsChanged(SQLiteDatabase db) {
+        if (!db.inTransaction()) {
+            reloadSummary();
+        }
+    }
+
+    /**
+     * Run a batch of registry writes as one SQLite transaction
+     */
+    public void runInTransaction(Runnable writes) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            writes.run();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            alarmsChanged(db);
+        }
+    }
+
+    /**
+     * Queue a lifecycle event, keeping only the newest maxEvents
+     */
+    public void appendEvent(AlarmEvents.Event event, int maxEvents) {
+        ContentValues values = new ContentValues();
+        values.put(COL_TYPE, event.type);
+        values.put(COL_ALARM_ID, event.alarmId);
+        values.put(COL_AT, event.atMs);
+        if (event.fireTimeMs != null) {
+            values.put(COL_FIRE_TIME, event.fireTimeMs);
+        }
+
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            long id = db.insertOrThrow(TABLE_EVENTS, null, values);
+            db.delete(TABLE_EVENTS, COL_EVENT_ID + " <= ?", new String[]{String.valueOf(id - maxEvents)});
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Remove and return every queued event, oldest first
+     */
+    public List<AlarmEvents.Event> takeEvents() {
+        List<AlarmEvents.Event> events = new ArrayList<>();
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            try (Cursor cursor = db.query(TABLE_EVENTS,
+                    new String[]{COL_EVENT_ID, COL_TYPE, COL_ALARM_ID, COL_AT, COL_FIRE_TIME},
+                    null, null, null, null, COL_EVENT_ID + " ASC")) {
+                while (cursor.moveToNext()) {
+                    events.add(new AlarmEvents.Event(
+                        cursor.getLong(0),
+                        cursor.getString(1),
+                        cursor.getString(2),
+                        cursor.getLong(3),
+                        cursor.isNull(4) ? null : cursor.getLong(4)
+                    ));
+                }
+            }
+            if (!events.isEmpty()) {
+                db.delete(TABLE_EVENTS, COL_EVENT_ID + " <= ?",
+                    new String[]{String.valueOf(events.get(events.size() - 1).id)});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return events;
+    }
+
+    /**
+     * Add one finished wake lock hold to the alarm's running totals
+     */
+    public void addWakeHold(String alarmId, String reason, long heldMs, boolean timedOut) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.execSQL("INSERT OR IGNORE INTO " + TABLE_WAKE_STATS
+                + " (" + COL_ALARM_ID + ", " + COL_REASON + ") VALUES (?, ?)",
+                new Object[]{alarmId, reason});
+            db.execSQL("UPDATE " + TABLE_WAKE_STATS + " SET "
+                + COL_HELD_MS + " = " + COL_HELD_MS + " + ?, "
+                + COL_HOLDS + " = " + COL_HOLDS + " + 1, "
+                + COL_TIMEOUTS + " = " + COL_TIMEOUTS + " + ? "
+                + "WHERE " + COL_ALARM_ID + " = ? AND " + COL_REASON + " = ?",
+                new Object[]{heldMs, timedOut ? 1 : 0, alarmId, reason});
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Totals per alarm and reason, longest held first
+     */
+    public List<AlarmWakeLocks.Stat> getWakeStats() {
+        List<AlarmWakeLocks.Stat> stats = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query(TABLE_WAKE_STATS,
+                new String[]{COL_ALARM_ID, COL_REASON, COL_HELD_MS, COL_HOLDS, COL_TIMEOUTS},
+                null, null, null, null, COL_HELD_MS + " DESC")) {
+            while (cursor.moveToNext()) {
+                stats.add(new AlarmWakeLocks.Stat(
+                    cursor.getString(0),
+                    cursor.getString(1),
+                    cursor.getLong(2),
+                    cursor.getInt(3),
+                    cursor.getInt(4)
+                ));
+            }
+        }
+        return stats;
+    }
+
+    public String getSetting(String key, String defaultValue) {
+        try (Cursor cursor = getReadableDatabase().query(
+                TABLE_SETTINGS, new String[]{COL_VALUE}, COL_KEY + " = ?", new String[]{key},
+                null, null, null)) {
+            return cursor.moveToFirst() ? cursor.getString(0) : defaultValue;
+        }
+    }
+
+    public void putSetting(String key, String value) {
+        ContentValues values = new ContentValues();
+        values.put(COL_KEY, key);
+        values.put(COL_VALUE, value);
+        getWritableDatabase().insertWithOnConflict(TABLE_SETTINGS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    public void removeSetting(String key) {
+        getWritableDatabase().delete(TABLE_SETTINGS, COL_KEY + " = ?", new String[]{key});
+    }
+
+    public void removeSettingsWithPrefix(String prefix) {
+        getWritableDatabase().delete(TABLE_SETTINGS, "substr(" + COL_KEY + ", 1, ?) = ?",
+            new String[]{String.valueOf(prefix.length()), prefix});
+    }
+
+    private List<Entry> query(String selection, String[] selectionArgs) {
+        return query(selection, selectionArgs, null, null);
+    }
+
+    private List<Entry> query(String selection, String[] selectionArgs, String orderBy, String limit) {
+        List<Entry> entries = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query(
+                TABLE_ALARMS, ALARM_COLUMNS, selection, selectionArgs, null, null, orderBy, limit)) {
+            while (cursor.moveToNext()) {
+                int daysMask = cursor.getInt(5);
+                AlarmRecurrence recurrence = daysMask != 0
+                    ? new AlarmRecurrence(daysMask, cursor.getInt(6), cursor.getInt(7), cursor.getString(8))
+                    : null;
+                entries.add(new Entry(
+                    cursor.getString(0),
+                    cursor.getLong(1),
+                    cursor.getString(2),
+                    cursor.getString(3),
+                    cursor.getString(4),
+                    recurrence,
+                    cursor.getInt(9) != 0
+                ));
+            }
+        }
+        return entries;
+    }
+}
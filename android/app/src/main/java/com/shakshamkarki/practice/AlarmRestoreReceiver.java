@@ -0,0 +1,68 @@
+package com.shakshamkarki.practice;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Rebuilds AlarmManager registrations from the native registry after a reboot,
+ * a manual clock change, a time zone change or an app update.
+ * Runs off the main thread via goAsync() so dozens of alarms can't cause an ANR.
+ */
+public class AlarmRestoreReceiver extends BroadcastReceiver {
+    private static final String TAG = "AlarmRestoreReceiver";
+
+    static final String SETTING_LAST_RESTORE_REASON = "last_restore_reason";
+    static final String SETTING_LAST_RESTORE_COUNT = "last_restore_count";
+    static final String SETTING_LAST_RESTORE_MS = "last_restore_ms";
+    static final String SETTING_LAST_RESTORE_AT = "last_restore_at";
+
+    private static final ExecutorService restoreExecutor = Executors.newSingleThreadExecutor();
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        final String action = intent.getAction();
+        if (!Intent.ACTION_BOOT_COMPLETED.equals(action)
+                && !Intent.ACTION_TIME_CHANGED.equals(action)
+                && !Intent.ACTION_TIMEZONE_CHANGED.equals(action)
+                && !Intent.ACTION_MY_PACKAGE_REPLACED.equals(action)) {
+            Log.w(TAG, "Ignoring unexpected broadcast: " + action);
+            return;
+        }
+
+        Log.d(TAG, "🔄 Restoring alarms after " + action);
+        final Context appContext = context.getApplicationContext();
+        final PendingResult pendingResult = goAsync();
+
+        restoreExecutor.execute(() -> {
+            long startMs = SystemClock.elapsedRealtime();
+            try {
+                int restoredCount = AlarmScheduler.restoreAll(appContext);
+                long elapsedMs = SystemClock.elapsedRealtime() - startMs;
+                recordRestore(appContext, action, restoredCount, elapsedMs);
+
+                Log.d(TAG, "✅ Restored " + restoredCount + " alarms in " + elapsedMs + "ms");
+                if (elapsedMs > AlarmReceiverWork.BUDGET_MS) {
+                    Log.w(TAG, "⚠️ Restore took " + elapsedMs + "ms - close to the broadcast timeout");
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to restore alarms", e);
+            } finally {
+                pendingResult.finish();
+            }
+        });
+    }
+
+    private static void recordRestore(Context context, String action, int restoredCount, long elapsedMs) {
+        AlarmRegistry registry = AlarmRegistry.getInstance(context);
+        registry.putSetting(SETTING_LAST_RESTORE_REASON, action);
+        registry.putSetting(SETTING_LAST_RESTORE_COUNT, String.valueOf(restoredCount));
+        registry.putSetting(SETTING_LAST_RESTORE_MS, String.valueOf(elapsedMs));
+        registry.putSetting(SETTING_LAST_RESTORE_AT, String.valueOf(System.currentTimeMillis()));
+    }
+}
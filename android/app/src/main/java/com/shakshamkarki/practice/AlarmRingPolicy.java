@@ -0,0 +1,192 @@
+package com.shakshamkarki.practice;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * How long an unattended alarm rings and what happens after.
+ *
+ * Rings for maxRingMs, then auto-snoozes up to autoSnoozes times in a row,
+ * then auto-dismisses. If escalateAfterMs is set, playback switches to the
+ * system alarm sound that far into a ring. Each ring that ends without the
+ * user is reported as missed. Every snooze, user or automatic, lasts
+ * snoozeMs, and the user may snooze at most maxSnoozes times before they
+ * have to stop the alarm.
+ *
+ * Policies are kept in registry settings per top-level alarm, with a default
+ * for alarms that have none. Snoozes use their parent's policy. The
+ * consecutive auto-snooze count resets whenever the user stops or snoozes;
+ * the user's snooze count resets when they stop or the alarm is dismissed.
+ */
+public class AlarmRingPolicy {
+    private static final String TAG = "AlarmRingPolicy";
+    private static final String SETTING_DEFAULT = "ring_policy";
+    private static final String SETTING_PREFIX = "ring_policy:";
+    private static final String SETTING_AUTO_SNOOZED_PREFIX = "ring_autosnoozed:";
+    private static final String SETTING_SNOOZED_PREFIX = "ring_snoozed:";
+
+    public static final long MIN_RING_MS = 30 * 1000;
+    /** Never longer than the service's ringing wake lock may be held */
+    public static final long MAX_RING_MS = AlarmWakeLocks.RINGING_MAX_MS;
+    public static final long MIN_SNOOZE_MS = 60 * 1000;
+    public static final long MAX_SNOOZE_MS = 60 * 60 * 1000;
+    public static final int MAX_AUTO_SNOOZES = 10;
+    public static final int MAX_SNOOZES = 20;
+
+    public static final AlarmRingPolicy DEFAULT = new AlarmRingPolicy(10 * 60 * 1000, 2, 5 * 60 * 1000, 0, 3);
+
+    public final long maxRingMs;
+    public final int autoSnoozes;
+    public final long snoozeMs;
+    /** 0 keeps the alarm's own sound for the whole ring */
+    public final long escalateAfterMs;
+    /** 0 disables the snooze action */
+    public final int maxSnoozes;
+
+    /**
+     * @throws IllegalArgumentException if a value is out of range
+     */
+    public AlarmRingPolicy(long maxRingMs, int autoSnoozes, long snoozeMs, long escalateAfterMs, int maxSnoozes) {
+        if (maxRingMs < MIN_RING_MS || maxRingMs > MAX_RING_MS) {
+            throw new IllegalArgumentException("Ring time must be " + MIN_RING_MS + "-" + MAX_RING_MS + "ms");
+        }
+        if (autoSnoozes < 0 || autoSnoozes > MAX_AUTO_SNOOZES) {
+            throw new IllegalArgumentException("Auto-snoozes must be 0-" + MAX_AUTO_SNOOZES);
+        }
+        if (snoozeMs < MIN_SNOOZE_MS || snoozeMs > MAX_SNOOZE_MS) {
+            throw new IllegalArgumentException("Snooze must be " + MIN_SNOOZE_MS + "-" + MAX_SNOOZE_MS + "ms");
+        }
+        if (escalateAfterMs < 0 || escalateAfterMs >= maxRingMs) {
+            throw new IllegalArgumentException("Escalation must be 0 (off) or shorter than the ring time");
+        }
+        if (maxSnoozes < 0 || maxSnoozes > MAX_SNOOZES) {
+            throw new IllegalArgumentException("Snoozes must be 0-" + MAX_SNOOZES);
+        }
+        this.maxRingMs = maxRingMs;
+        this.autoSnoozes = autoSnoozes;
+        this.snoozeMs = snoozeMs;
+        this.escalateAfterMs = escalateAfterMs;
+        this.maxSnoozes = maxSnoozes;
+    }
+
+    /**
+     * Policy for an alarm, or the default. Reads the registry - call off the main thread.
+     */
+    public static AlarmRingPolicy forAlarm(Context context, String alarmId) {
+        AlarmRegistry registry = AlarmRegistry.getInstance(context);
+        String stored = alarmId != null ? registry.getSetting(SETTING_PREFIX + alarmId, null) : null;
+        if (stored == null) {
+            stored = registry.getSetting(SETTING_DEFAULT, null);
+        }
+        if (stored == null) {
+            return DEFAULT;
+        }
+        try {
+            return fromJson(new JSONObject(stored));
+        } catch (JSONException | IllegalArgumentException e) {
+            Log.w(TAG, "Ignoring unreadable ring policy for " + alarmId, e);
+            return DEFAULT;
+        }
+    }
+
+    /**
+     * @param alarmId alarm to configure, or null for the default
+     */
+    public static void set(Context context, String alarmId, AlarmRingPolicy policy) {
+        AlarmRegistry.getInstance(context).putSetting(
+            alarmId != null ? SETTING_PREFIX + alarmId : SETTING_DEFAULT, policy.toJson().toString());
+    }
+
+    /**
+     * Drop an alarm's own policy and its snooze counts
+     */
+    public static void forget(Context context, String alarmId) {
+        AlarmRegistry registry = AlarmRegistry.getInstance(context);
+        registry.removeSetting(SETTING_PREFIX + alarmId);
+        registry.removeSetting(SETTING_AUTO_SNOOZED_PREFIX + alarmId);
+        registry.removeSetting(SETTING_SNOOZED_PREFIX + alarmId);
+    }
+
+    /**
+     * Drop every per-alarm policy, keeping the default
+     */
+    public static void forgetAll(Context context) {
+        AlarmRegistry registry = AlarmRegistry.getInstance(context);
+        registry.removeSettingsWithPrefix(SETTING_PREFIX);
+        registry.removeSettingsWithPrefix(SETTING_AUTO_SNOOZED_PREFIX);
+        registry.removeSettingsWithPrefix(SETTING_SNOOZED_PREFIX);
+    }
+
+    /**
+     * Count one auto-snooze against the alarm's policy
+     * @return false once the alarm has used them all - time to auto-dismiss
+     */
+    public static boolean takeAutoSnooze(Context context, String alarmId, AlarmRingPolicy policy) {
+        AlarmRegistry registry = AlarmRegistry.getInstance(context);
+        String key = SETTING_AUTO_SNOOZED_PREFIX + alarmId;
+        int used = Integer.parseInt(registry.getSetting(key, "0"));
+        if (used >= policy.autoSnoozes) {
+            registry.removeSetting(key);
+            return false;
+        }
+        registry.putSetting(key, String.valueOf(used + 1));
+        return true;
+    }
+
+    /**
+     * The user dealt with the alarm - the next unattended ring starts a fresh count
+     */
+    public static void resetAutoSnoozes(Context context, String alarmId) {
+        AlarmRegistry.getInstance(context).removeSetting(SETTING_AUTO_SNOOZED_PREFIX + alarmId);
+    }
+
+    /**
+     * @return how many more times the user may snooze this alarm
+     */
+    public static int snoozesLeft(Context context, String alarmId, AlarmRingPolicy policy) {
+        int used = Integer.parseInt(AlarmRegistry.getInstance(context).getSetting(SETTING_SNOOZED_PREFIX + alarmId, "0"));
+        return Math.max(0, policy.maxSnoozes - used);
+    }
+
+    /**
+     * Count one user snooze against the alarm's policy
+     */
+    public static void takeSnooze(Context context, String alarmId) {
+        AlarmRegistry registry = AlarmRegistry.getInstance(context);
+        String key = SETTING_SNOOZED_PREFIX + alarmId;
+        registry.putSetting(key, String.valueOf(Integer.parseInt(registry.getSetting(key, "0")) + 1));
+    }
+
+    /**
+     * The alarm is over - its next ring gets the full number of snoozes again
+     */
+    public static void resetSnoozes(Context context, String alarmId) {
+        AlarmRegistry.getInstance(context).removeSetting(SETTING_SNOOZED_PREFIX + alarmId);
+    }
+
+    public static AlarmRingPolicy fromJson(JSONObject json) {
+        return new AlarmRingPolicy(
+            json.optLong("maxRingMs", DEFAULT.maxRingMs),
+            json.optInt("autoSnoozes", DEFAULT.autoSnoozes),
+            json.optLong("snoozeMs", DEFAULT.snoozeMs),
+            json.optLong("escalateAfterMs", DEFAULT.escalateAfterMs),
+            json.optInt("maxSnoozes", DEFAULT.maxSnoozes));
+    }
+
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        try {
+            json.put("maxRingMs", maxRingMs);
+            json.put("autoSnoozes", autoSnoozes);
+            json.put("snoozeMs", snoozeMs);
+            json.put("escalateAfterMs", escalateAfterMs);
+            json.put("maxSnoozes", maxSnoozes);
+        } catch (JSONException e) {
+            // Only thrown for non-finite doubles
+        }
+        return json;
+    }
+}
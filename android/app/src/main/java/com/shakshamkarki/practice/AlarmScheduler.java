@@ -0,0 +1,552 @@
+package com.shakshamkarki.practice;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Single entry point for arming and cancelling AlarmManager alarms.
+ * Everything scheduled here is recorded in AlarmRegistry so it can be found again.
+ *
+ * Two modes:
+ * - MODE_PER_ALARM: every registry row has its own PendingIntent in AlarmManager
+ * - MODE_SINGLE_ARMED: only the soonest row is armed; AlarmReceiver arms the
+ *   next one when it fires, so the system-side footprint stays O(1)
+ */
+public class AlarmScheduler {
+    private static final String TAG = "AlarmScheduler";
+    private static final String PREFS_NAME = "alarm_scheduler";
+    private static final String PREF_LEGACY_SWEEP_DONE = "legacy_sweep_done";
+
+    /** What the legacy sweep probes: request codes 0-999, then these prefixes with 0-99 appended */
+    private static final int LEGACY_REQUEST_CODES = 1000;
+    private static final String[] LEGACY_ID_PREFIXES = {"alarm-", "test-", "snooze-", ""};
+    private static final int LEGACY_IDS_PER_PREFIX = 100;
+
+    public static final String MODE_PER_ALARM = "per_alarm";
+    public static final String MODE_SINGLE_ARMED = "single_armed";
+    private static final String SETTING_MODE = "scheduler_mode";
+
+    /** Action on the single "next due" PendingIntent, so it never matches a per-alarm one */
+    public static final String ACTION_NEXT_DUE = "com.shakshamkarki.practice.NEXT_DUE_ALARM";
+    private static final int NEXT_DUE_REQUEST_CODE = 0x4E455854;
+
+    /** A one-shot overdue by more than this when restoring is treated as missed */
+    private static final long MISSED_GRACE_MS = 15 * 60 * 1000;
+
+    public static String getMode(Context context) {
+        return AlarmRegistry.getInstance(context).getSetting(SETTING_MODE, MODE_PER_ALARM);
+    }
+
+    public static boolean isSingleArmed(Context context) {
+        return MODE_SINGLE_ARMED.equals(getMode(context));
+    }
+
+    /**
+     * Switch modes and move the existing AlarmManager registrations over
+     */
+    public static void setMode(Context context, String mode) {
+        if (!MODE_PER_ALARM.equals(mode) && !MODE_SINGLE_ARMED.equals(mode)) {
+            throw new IllegalArgumentException("Unknown scheduler mode: " + mode);
+        }
+        if (mode.equals(getMode(context))) {
+            return;
+        }
+
+        AlarmRegistry registry = AlarmRegistry.getInstance(context);
+        registry.putSetting(SETTING_MODE, mode);
+        List<AlarmRegistry.Entry> entries = registry.getAll();
+        if (MODE_SINGLE_ARMED.equals(mode)) {
+            for (AlarmRegistry.Entry entry : entries) {
+                cancelPendingIntent(context, entry.alarmId);
+            }
+            armNextDue(context);
+        } else {
+            cancelNextDuePendingIntent(context);
+            for (AlarmRegistry.Entry entry : entries) {
+                armPendingIntent(context, entry);
+            }
+        }
+        Log.d(TAG, "🔀 Scheduler mode is now " + mode + " (" + entries.size() + " alarms)");
+    }
+
+    /**
+     * Arm an alarm and record it in the registry
+     */
+    public static void schedule(Context context, String alarmId, long fireTimeMs, String audioPath,
+                                String alarmTime, String parentId) {
+        schedule(context, alarmId, fireTimeMs, audioPath, alarmTime, parentId, null);
+    }
+
+    /**
+     * Arm the next occurrence of a weekly alarm. AlarmReceiver re-arms the
+     * following one itself when it fires.
+     * @return the armed fire time
+     */
+    public static long scheduleRepeating(Context context, String alarmId, AlarmRecurrence recurrence,
+                                         String audioPath, String alarmTime) {
+        long fireTimeMs = recurrence.nextFireTime(System.currentTimeMillis());
+        schedule(context, alarmId, fireTimeMs, audioPath, alarmTime, null, recurrence);
+        return fireTimeMs;
+    }
+
+    private static void schedule(Context context, String alarmId, long fireTimeMs, String audioPath,
+                                 String alarmTime, String parentId, AlarmRecurrence recurrence) {
+        schedule(context, new AlarmRegistry.Entry(
+            alarmId, fireTimeMs, audioPath, alarmTime, parentId, recurrence, false));
+    }
+
+    private static void schedule(Context context, AlarmRegistry.Entry entry) {
+        AlarmRegistry.getInstance(context).put(entry);
+        AlarmAudioSource.retain(context, entry.audioPath);
+        AlarmPcmCache.prefetch(context, entry.audioPath);
+
+        if (isSingleArmed(context)) {
+            armNextDue(context);
+        } else {
+            armPendingIntent(context, entry);
+        }
+        // Only the channel - a notification built here would sit in this process, not ":alarm"
+        AlarmNotifications.ensureChannels(context);
+        AlarmWarmup.rearm(context);
+        Log.d(TAG, "⏰ Registered " + entry.alarmId + " at " + entry.fireTimeMs);
+    }
+
+    /**
+     * Record and arm throwaway alarms for the cancel-all benchmark, without the
+     * audio retain, PCM prefetch or warm-up a real schedule() kicks off
+     */
+    static void seedForBenchmark(Context context, List<AlarmRegistry.Entry> entries) {
+        AlarmRegistry registry = AlarmRegistry.getInstance(context);
+        registry.runInTransaction(() -> {
+            for (AlarmRegistry.Entry entry : entries) {
+                registry.put(entry);
+            }
+        });
+        for (AlarmRegistry.Entry entry : entries) {
+            armPendingIntent(context, entry);
+        }
+    }
+
+    /**
+     * Outcome of a sync: how many alarms each operation touched
+     */
+    public static class SyncResult {
+        public int added;
+        public int updated;
+        public int canceled;
+        public int unchanged;
+    }
+
+    /**
+     * Reconcile the alarms owned by sync with the desired set, touching only
+     * what differs. Alarms scheduled outside sync (tests, snoozes) are left alone,
+     * except the snooze of an alarm cancelled here.
+     */
+    public static SyncResult sync(Context context, List<AlarmRegistry.Entry> desired) {
+        final boolean singleArmed = isSingleArmed(context);
+        final AlarmRegistry registry = AlarmRegistry.getInstance(context);
+        final SyncResult result = new SyncResult();
+
+        final Map<String, AlarmRegistry.Entry> current = new HashMap<>();
+        for (AlarmRegistry.Entry entry : registry.getSynced()) {
+            current.put(entry.alarmId, entry);
+        }
+
+        final List<AlarmRegistry.Entry> toArm = new ArrayList<>();
+        final List<String> toCancel = new ArrayList<>();
+        registry.runInTransaction(() -> {
+            for (AlarmRegistry.Entry want : desired) {
+                AlarmRegistry.Entry have = current.remove(want.alarmId);
+                if (have != null && sameSchedule(have, want)) {
+                    result.unchanged++;
+                    continue;
+                }
+                registry.put(want);
+                toArm.add(want);
+                if (have == null) {
+                    result.added++;
+                } else {
+                    result.updated++;
+                }
+            }
+            for (AlarmRegistry.Entry stale : current.values()) {
+                String snoozeId = AlarmSnooze.idFor(stale.alarmId);
+                if (registry.remove(snoozeId)) {
+                    toCancel.add(snoozeId);
+                }
+                registry.remove(stale.alarmId);
+                toCancel.add(stale.alarmId);
+                result.canceled++;
+            }
+        });
+
+        // AlarmManager calls happen after the registry commit, and only for what changed
+        if (singleArmed) {
+            if (!toArm.isEmpty() || !toCancel.isEmpty()) {
+                armNextDue(context);
+            }
+        } else {
+            for (AlarmRegistry.Entry entry : toArm) {
+                armPendingIntent(context, entry);
+            }
+            for (String alarmId : toCancel) {
+                cancelPendingIntent(context, alarmId);
+            }
+        }
+        for (AlarmRegistry.Entry entry : toArm) {
+            AlarmAudioSource.retain(context, entry.audioPath);
+            AlarmPcmCache.prefetch(context, entry.audioPath);
+        }
+        if (!toArm.isEmpty()) {
+            AlarmNotifications.ensureChannels(context);
+        }
+        for (String alarmId : toCancel) {
+            AlarmRingPolicy.forget(context, alarmId);
+        }
+        if (!toArm.isEmpty() || !toCancel.isEmpty()) {
+            AlarmWarmup.rearm(context);
+        }
+        return result;
+    }
+
+    private static boolean sameSchedule(AlarmRegistry.Entry have, AlarmRegistry.Entry want) {
+        boolean sameTiming = want.recurrence != null
+            ? want.recurrence.sameRule(have.recurrence)
+            : have.recurrence == null && have.fireTimeMs == want.fireTimeMs;
+        return sameTiming
+            && Objects.equals(have.audioPath, want.audioPath)
+            && Objects.equals(have.alarmTime, want.alarmTime);
+    }
+
+    /**
+     * Cancel one alarm and its snooze, if it has one - looked up by its fixed ID, not searched for
+     */
+    public static void cancel(Context context, String alarmId) {
+        boolean singleArmed = isSingleArmed(context);
+        AlarmRegistry registry = AlarmRegistry.getInstance(context);
+        String snoozeId = AlarmSnooze.idFor(alarmId);
+        if (registry.remove(snoozeId)) {
+            if (!singleArmed) {
+                cancelPendingIntent(context, snoozeId);
+            }
+        }
+        registry.remove(alarmId);
+        AlarmRingPolicy.forget(context, alarmId);
+
+        if (singleArmed) {
+            armNextDue(context);
+        } else {
+            cancelPendingIntent(context, alarmId);
+        }
+        AlarmWarmup.rearm(context);
+    }
+
+    /**
+     * Cancel every alarm in the registry
+     * @return number of alarms cancelled
+     */
+    public static int cancelAll(Context context) {
+        int canceledCount = sweepLegacyAlarmsOnce(context);
+
+        AlarmRegistry registry = AlarmRegistry.getInstance(context);
+        List<AlarmRegistry.Entry> entries = registry.getAll();
+        if (isSingleArmed(context)) {
+            cancelNextDuePendingIntent(context);
+        } else {
+            for (AlarmRegistry.Entry entry : entries) {
+                cancelPendingIntent(context, entry.alarmId);
+            }
+        }
+        registry.removeAll();
+        AlarmRingPolicy.forgetAll(context);
+        AlarmWarmup.rearm(context);
+        return canceledCount + entries.size();
+    }
+
+    /**
+     * Cancel every registered alarm whose ID starts with the given prefix
+     * @return number of alarms cancelled
+     */
+    public static int cancelByPrefix(Context context, String prefix) {
+        return cancelEntries(context, AlarmRegistry.getInstance(context).getByPrefix(prefix));
+    }
+
+    private static int cancelEntries(Context context, List<AlarmRegistry.Entry> entries) {
+        boolean singleArmed = isSingleArmed(context);
+        AlarmRegistry registry = AlarmRegistry.getInstance(context);
+        for (AlarmRegistry.Entry entry : entries) {
+            if (!singleArmed) {
+                cancelPendingIntent(context, entry.alarmId);
+            }
+            registry.remove(entry.alarmId);
+            AlarmRingPolicy.forget(context, entry.alarmId);
+        }
+
+        if (singleArmed) {
+            armNextDue(context);
+        }
+        AlarmWarmup.rearm(context);
+        return entries.size();
+    }
+
+    /**
+     * Called when an alarm is delivered. Its PendingIntent is consumed, so a
+     * weekly alarm is re-armed for its next occurrence and a one-shot is forgotten.
+     * In single-armed mode this also arms whatever is due next.
+     * @return the registry entry that fired, or null if it wasn't registered
+     */
+    public static AlarmRegistry.Entry onAlarmFired(Context context, String alarmId) {
+        AlarmRegistry registry = AlarmRegistry.getInstance(context);
+        AlarmRegistry.Entry entry = alarmId != null ? registry.get(alarmId) : null;
+        Long firedAt = entry != null ? entry.fireTimeMs : null;
+
+        // Events go out after the registry write, so the main process reloads what changed
+        if (entry != null && entry.recurrence != null) {
+            // Never re-arm at or before the occurrence that just fired, even if delivery was early
+            long after = Math.max(System.currentTimeMillis(), entry.fireTimeMs);
+            long nextFireTimeMs = entry.recurrence.nextFireTime(after);
+            schedule(context, entry.withFireTime(nextFireTimeMs));
+            AlarmEvents.record(context, AlarmEvents.FIRED, alarmId, firedAt);
+            AlarmEvents.record(context, AlarmEvents.RESCHEDULED, alarmId, nextFireTimeMs);
+            Log.d(TAG, "🔁 Re-armed weekly alarm " + alarmId + " for " + nextFireTimeMs);
+            return entry;
+        }
+
+        if (entry != null) {
+            registry.remove(alarmId);
+        }
+        AlarmEvents.record(context, AlarmEvents.FIRED, alarmId, firedAt);
+        if (isSingleArmed(context)) {
+            armNextDue(context);
+        }
+        AlarmWarmup.rearm(context);
+        return entry;
+    }
+
+    /**
+     * Rebuild every AlarmManager registration from the registry, e.g. after a
+     * reboot (which wipes them) or a clock/zone change (which moves wall-clock
+     * times). Weekly alarms get their next occurrence recomputed; one-shots that
+     * were missed by more than MISSED_GRACE_MS are dropped instead of ringing late.
+     * Both cases are reported to JS as missed / rescheduled events.
+     * @return number of alarms armed
+     */
+    public static int restoreAll(Context context) {
+        // Also runs after an app upgrade, which is when a new channel version lands
+        AlarmNotifications.ensureChannels(context);
+
+        final boolean singleArmed = isSingleArmed(context);
+        final AlarmRegistry registry = AlarmRegistry.getInstance(context);
+        final long now = System.currentTimeMillis();
+        final List<AlarmRegistry.Entry> restored = new ArrayList<>();
+        final List<AlarmRegistry.Entry> missed = new ArrayList<>();
+        final List<AlarmRegistry.Entry> moved = new ArrayList<>();
+
+        registry.runInTransaction(() -> {
+            for (AlarmRegistry.Entry entry : registry.getAll()) {
+                if (entry.fireTimeMs < now - MISSED_GRACE_MS) {
+                    missed.add(entry);
+                }
+                if (entry.recurrence != null) {
+                    AlarmRegistry.Entry next = entry.withFireTime(entry.recurrence.nextFireTime(now));
+                    registry.put(next);
+                    restored.add(next);
+                    if (next.fireTimeMs != entry.fireTimeMs) {
+                        moved.add(next);
+                    }
+                } else if (entry.fireTimeMs >= now - MISSED_GRACE_MS) {
+                    restored.add(entry);
+                } else {
+                    Log.w(TAG, "⌛ Dropping missed one-shot " + entry.alarmId + " (was due " + entry.fireTimeMs + ")");
+                    registry.remove(entry.alarmId);
+                }
+            }
+        });
+
+        // Recorded after the commit so a live module drains a consistent registry
+        for (AlarmRegistry.Entry entry : missed) {
+            AlarmEvents.record(context, AlarmEvents.MISSED, entry.alarmId, entry.fireTimeMs);
+        }
+        for (AlarmRegistry.Entry entry : moved) {
+            AlarmEvents.record(context, AlarmEvents.RESCHEDULED, entry.alarmId, entry.fireTimeMs);
+        }
+
+        if (singleArmed) {
+            armNextDue(context);
+        } else {
+            for (AlarmRegistry.Entry entry : restored) {
+                armPendingIntent(context, entry);
+            }
+        }
+        AlarmWarmup.rearm(context);
+        return restored.size();
+    }
+
+    /**
+     * Point the single "next due" PendingIntent at the soonest registry row,
+     * or cancel it when nothing is left
+     */
+    static void armNextDue(Context context) {
+        AlarmRegistry.Entry next = AlarmRegistry.getInstance(context).getNextDue();
+        if (next == null) {
+            cancelNextDuePendingIntent(context);
+            Log.d(TAG, "📭 No alarms left to arm");
+            return;
+        }
+
+        AlarmManager alarmManager = requireAlarmManager(context);
+        Intent intent = buildAlarmIntent(context, next);
+        intent.setAction(ACTION_NEXT_DUE);
+        PendingIntent pendingIntent = PendingIntent.getBroadcast(
+            context,
+            NEXT_DUE_REQUEST_CODE,
+            intent,
+            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+
+        // Re-setting the same PendingIntent replaces the previous registration
+        alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, next.fireTimeMs, pendingIntent);
+        Log.d(TAG, "🎯 Single armed alarm is " + next.alarmId + " at " + next.fireTimeMs);
+    }
+
+    private static void armPendingIntent(Context context, AlarmRegistry.Entry entry) {
+        AlarmManager alarmManager = requireAlarmManager(context);
+        PendingIntent pendingIntent = PendingIntent.getBroadcast(
+            context,
+            entry.alarmId.hashCode(),
+            buildAlarmIntent(context, entry),
+            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+
+        // Use setExactAndAllowWhileIdle for precise timing even in doze mode
+        alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, entry.fireTimeMs, pendingIntent);
+    }
+
+    private static Intent buildAlarmIntent(Context context, AlarmRegistry.Entry entry) {
+        Intent intent = new Intent(context, AlarmReceiver.class);
+        intent.putExtra("alarmId", entry.alarmId);
+        intent.putExtra("audioPath", entry.audioPath);
+        intent.putExtra("alarmTime", entry.alarmTime);
+        intent.putExtra("fireTime", entry.fireTimeMs);
+        return intent;
+    }
+
+    private static AlarmManager requireAlarmManager(Context context) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager == null) {
+            throw new IllegalStateException("AlarmManager is null");
+        }
+        return alarmManager;
+    }
+
+    private static void cancelPendingIntent(Context context, String alarmId) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        Intent intent = new Intent(context, AlarmReceiver.class);
+        PendingIntent pendingIntent = PendingIntent.getBroadcast(
+            context,
+            alarmId.hashCode(),
+            intent,
+            PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE
+        );
+        if (pendingIntent != null) {
+            if (alarmManager != null) {
+                alarmManager.cancel(pendingIntent);
+            }
+            pendingIntent.cancel();
+        }
+    }
+
+    private static void cancelNextDuePendingIntent(Context context) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        Intent intent = new Intent(context, AlarmReceiver.class);
+        intent.setAction(ACTION_NEXT_DUE);
+        PendingIntent pendingIntent = PendingIntent.getBroadcast(
+            context,
+            NEXT_DUE_REQUEST_CODE,
+            intent,
+            PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE
+        );
+        if (pendingIntent != null) {
+            if (alarmManager != null) {
+                alarmManager.cancel(pendingIntent);
+            }
+            pendingIntent.cancel();
+        }
+    }
+
+    /**
+     * Alarms scheduled before the registry existed are invisible to it.
+     * Probe for them the old way exactly once, then rely on the registry.
+     */
+    private static int sweepLegacyAlarmsOnce(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        if (prefs.getBoolean(PREF_LEGACY_SWEEP_DONE, false)) {
+            return 0;
+        }
+        int canceledCount = probeCancelAll(context);
+        prefs.edit().putBoolean(PREF_LEGACY_SWEEP_DONE, true).apply();
+        Log.d(TAG, "🧹 One-time legacy sweep canceled " + canceledCount + " alarms");
+        return canceledCount;
+    }
+
+    /**
+     * Brute-force cancel by probing request codes 0-999 and common string IDs.
+     * Only used for the one-time legacy sweep and the cancel-all benchmark.
+     */
+    static int probeCancelAll(Context context) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        int canceledCount = 0;
+
+        for (int i = 0; i < LEGACY_REQUEST_CODES; i++) {
+            canceledCount += probeCancel(context, alarmManager, i);
+        }
+
+        for (String alarmId : legacyProbeIds()) {
+            canceledCount += probeCancel(context, alarmManager, alarmId.hashCode());
+        }
+        return canceledCount;
+    }
+
+    /**
+     * The string IDs the legacy sweep finds, in probe order
+     */
+    static List<String> legacyProbeIds() {
+        List<String> alarmIds = new ArrayList<>();
+        for (String prefix : LEGACY_ID_PREFIXES) {
+            for (int i = 0; i < LEGACY_IDS_PER_PREFIX; i++) {
+                alarmIds.add(prefix + i);
+            }
+        }
+        return alarmIds;
+    }
+
+    private static int probeCancel(Context context, AlarmManager alarmManager, int requestCode) {
+        try {
+            Intent intent = new Intent(context, AlarmReceiver.class);
+            PendingIntent pendingIntent = PendingIntent.getBroadcast(
+                context,
+                requestCode,
+                intent,
+                PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE
+            );
+            if (pendingIntent != null) {
+                alarmManager.cancel(pendingIntent);
+                pendingIntent.cancel();
+                return 1;
+            }
+        } catch (Exception e) {
+            // Ignore individual cancellation errors
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,56 @@
+package com.shakshamkarki.practice;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The one place snoozes are scheduled, for the user's snooze from the
+ * notification or AlarmActivity and for the ring policy's auto-snooze alike.
+ *
+ * Each top-level alarm has at most one snooze, with the fixed ID
+ * "<alarm>_snooze" and the alarm as its parent. Snoozing again (even from
+ * a snooze) moves that one registration instead of adding another, and
+ * cancelling the alarm removes it by primary key - no scan, no leftover
+ * PendingIntents.
+ */
+public class AlarmSnooze {
+    private static final String TAG = "AlarmSnooze";
+    private static final String SUFFIX = "_snooze";
+
+    /**
+     * ID of the snooze belonging to this top-level alarm
+     */
+    public static String idFor(String rootId) {
+        return rootId + SUFFIX;
+    }
+
+    /**
+     * Schedule this alarm's snooze, replacing any earlier one
+     * @param rootId top-level alarm - a snoozed snooze passes its parent
+     */
+    public static void schedule(Context context, String rootId, String audioPath, long snoozeAt) {
+        AlarmScheduler.schedule(context, idFor(rootId), snoozeAt, audioPath, "Snoozed Alarm", rootId);
+        Log.d(TAG, "😴 " + idFor(rootId) + " set for " + snoozeAt);
+    }
+
+    /**
+     * Snooze every alarm in a stopped ring to the same time, so they ring -
+     * and coalesce - together again, and report each one snoozed. Every
+     * snooze plays its own alarm's recording. Used by the user's snooze and
+     * the ring policy's auto-snooze.
+     */
+    static void scheduleRing(Context context, AlarmPlayback.Ring ring, long snoozeAt) {
+        Set<String> snoozedRoots = new HashSet<>();
+        for (int i = 0; i < ring.alarmIds.size(); i++) {
+            // An alarm and its own snooze share one registration
+            if (snoozedRoots.add(ring.policyIds.get(i))) {
+                schedule(context, ring.policyIds.get(i), ring.audioPaths.get(i), snoozeAt);
+            }
+            // Queued for JS - delivered now if the app is running, replayed otherwise
+            AlarmEvents.record(context, AlarmEvents.SNOOZED, ring.alarmIds.get(i), snoozeAt);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.shakshamkarki.practice;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Every partial wake lock the alarm code takes goes through here.
+ *
+ * Holds are reference counted per (reason, alarm). Each has a deadline capped
+ * by its reason's maximum. The system-side timeout and a watchdog both end it
+ * there, even if the holder crashes or forgets to release. When a hold ends,
+ * its duration is added to per-alarm totals in the registry, which JS reads
+ * through getWakeLockStats.
+ */
+public class AlarmWakeLocks {
+    private static final String TAG = "AlarmWakeLocks";
+
+    /** AlarmReceiver -> AlarmAudioService hand-off, until the service takes its own */
+    public static final String REASON_FIRE = "fire";
+    public static final String REASON_RINGING = "ringing";
+    public static final String REASON_WARMUP = "warmup";
+
+    public static final long FIRE_MAX_MS = 10 * 1000;
+    public static final long RINGING_MAX_MS = 30 * 60 * 1000;
+    public static final long WARMUP_MAX_MS = 10 * 1000;
+    private static final long DEFAULT_MAX_MS = 60 * 1000;
+
+    /** Alarm ID recorded for holds that aren't tied to one */
+    private static final String NO_ALARM = "-";
+
+    /** Accumulated totals for one alarm and reason */
+    public static class Stat {
+        public final String alarmId;
+        public final String reason;
+        public final long heldMs;
+        public final int holds;
+        public final int timeouts;
+
+        Stat(String alarmId, String reason, long heldMs, int holds, int timeouts) {
+            this.alarmId = alarmId;
+            this.reason = reason;
+            this.heldMs = heldMs;
+            this.holds = holds;
+            this.timeouts = timeouts;
+        }
+    }
+
+    /** A hold that is active right now */
+    public static class Active {
+        public final String alarmId;
+        public final String reason;
+        public final int count;
+        public final long heldMs;
+        public final long remainingMs;
+
+        Active(String alarmId, String reason, int count, long heldMs, long remainingMs) {
+            this.alarmId = alarmId;
+            this.reason = reason;
+            this.count = count;
+            this.heldMs = heldMs;
+            this.remainingMs = remainingMs;
+        }
+    }
+
+    private static class Hold {
+        final String reason;
+        final String alarmId;
+        final PowerManager.WakeLock lock;
+        final long acquiredAt;
+        final Runnable watchdog;
+        int count;
+        long deadline;
+
+        Hold(String reason, String alarmId, PowerManager.WakeLock lock, long acquiredAt) {
+            this.reason = reason;
+            this.alarmId = alarmId;
+            this.lock = lock;
+            this.acquiredAt = acquiredAt;
+            this.watchdog = () -> expire(this);
+        }
+    }
+
+    private static final Map<String, Hold> holds = new HashMap<>();
+    private static final Handler watchdogHandler = new Handler(Looper.getMainLooper());
+    private static final ExecutorService statsExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, "AlarmWakeStats");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static Context appContext;
+
+    /**
+     * Take (or add a reference to) the hold for this reason and alarm.
+     * A later acquire can push the deadline out, never past the reason's
+     * maximum counted from the first acquire.
+     * @param holdMs how long the caller needs the CPU; clamped to the reason's maximum
+     */
+    public static synchronized void acquire(Context context, String reason, String alarmId, long holdMs) {
+        long maxMs = maxHoldMs(reason);
+        long boundedMs = holdMs > 0 && holdMs < maxMs ? holdMs : maxMs;
+        long now = SystemClock.elapsedRealtime();
+        String key = key(reason, alarmId);
+
+        Hold hold = holds.get(key);
+        if (hold == null) {
+            appContext = context.getApplicationContext();
+            PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+            PowerManager.WakeLock lock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "AlarmApp:" + reason);
+            // Counting is done here; the platform lock is simply on or off
+            lock.setReferenceCounted(false);
+            hold = new Hold(reason, alarmId != null ? alarmId : NO_ALARM, lock, now);
+            holds.put(key, hold);
+        }
+        hold.count++;
+        hold.deadline = Math.min(Math.max(hold.deadline, now + boundedMs), hold.acquiredAt + maxMs);
+
+        long timeoutMs = Math.max(1, hold.deadline - now);
+        hold.lock.acquire(timeoutMs);
+        watchdogHandler.removeCallbacks(hold.watchdog);
+        watchdogHandler.postDelayed(hold.watchdog, timeoutMs);
+        Log.d(TAG, "🔒 " + key + " x" + hold.count + " for up to " + timeoutMs + "ms");
+    }
+
+    /**
+     * Drop one reference; the lock goes when the last one does
+     */
+    public static synchronized void release(String reason, String alarmId) {
+        Hold hold = holds.get(key(reason, alarmId));
+        if (hold == null) {
+            return; // Already ended by the watchdog
+        }
+        if (--hold.count <= 0) {
+            end(hold, false);
+        }
+    }
+
+    /**
+     * End every hold for this reason regardless of references
+     */
+    public static synchronized void releaseAll(String reason) {
+        for (Hold hold : new ArrayList<>(holds.values())) {
+            if (hold.reason.equals(reason)) {
+                end(hold, false);
+            }
+        }
+    }
+
+    public static synchronized List<Active> getActive() {
+        long now = SystemClock.elapsedRealtime();
+        List<Active> active = new ArrayList<>();
+        for (Hold hold : holds.values()) {
+            active.add(new Active(hold.alarmId, hold.reason, hold.count,
+                now - hold.acquiredAt, Math.max(0, hold.deadline - now)));
+        }
+        return active;
+    }
+
+    /**
+     * Persisted totals per alarm - reads the registry, call off the main thread
+     */
+    public static List<Stat> getStats(Context context) {
+        return AlarmRegistry.getInstance(context).getWakeStats();
+    }
+
+    private static synchronized void expire(Hold hold) {
+        if (holds.get(key(hold.reason, hold.alarmId)) != hold) {
+            return;
+        }
+        Log.w(TAG, "⏰ Watchdog released " + hold.reason + " hold for " + hold.alarmId
+            + " at its deadline (" + hold.count + " references still open)");
+        end(hold, true);
+    }
+
+    private static void end(Hold hold, boolean timedOut) {
+        holds.remove(key(hold.reason, hold.alarmId));
+        watchdogHandler.removeCallbacks(hold.watchdog);
+        if (hold.lock.isHeld()) {
+            hold.lock.release();
+        }
+        long heldMs = Math.min(SystemClock.elapsedRealtime(), hold.deadline) - hold.acquiredAt;
+        Log.d(TAG, "🔓 " + hold.reason + " hold for " + hold.alarmId + " ended after " + heldMs + "ms");
+
+        Context context = appContext;
+        statsExecutor.execute(() -> {
+            try {
+                AlarmRegistry.getInstance(context).addWakeHold(hold.alarmId, hold.reason, heldMs, timedOut);
+            } catch (Exception e) {
+                Log.w(TAG, "Failed to record wake lock time", e);
+            }
+        });
+    }
+
+    private static long maxHoldMs(String reason) {
+        switch (reason) {
+            case REASON_FIRE:
+                return FIRE_MAX_MS;
+            case REASON_RINGING:
+                return RINGING_MAX_MS;
+            case REASON_WARMUP:
+                return WARMUP_MAX_MS;
+            default:
+                return DEFAULT_MAX_MS;
+        }
+    }
+
+    private static String key(String reason, String alarmId) {
+        return reason + ":" + (alarmId != null ? alarmId : NO_ALARM);
+    }
+}
@@ -0,0 +1,158 @@
+package com.shakshamkarki.practice;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.media.AudioAttributes;
+import android.media.MediaPlayer;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Optional pre-fire stage: a lead time before the next alarm is due, start the
+ * process and park a prepared MediaPlayer in AlarmPlayerPool, so the real fire
+ * only has to call start().
+ *
+ * Only the soonest registry row gets a warm-up, via one PendingIntent that is
+ * re-pointed whenever the schedule changes. It is armed with plain setExact,
+ * not the allow-while-idle variant, so it can never use up the Doze quota the
+ * real alarm depends on - in deep Doze the warm-up is skipped instead.
+ *
+ * The CPU is only held while the player prepares. Between warm-up and fire
+ * the device may sleep; the real alarm's setExactAndAllowWhileIdle wakes it,
+ * and if the pooled player didn't survive the service prepares a new one.
+ */
+public class AlarmWarmup {
+    private static final String TAG = "AlarmWarmup";
+    private static final String SETTING_LEAD_MS = "warmup_lead_ms";
+
+    public static final String ACTION_WARMUP = "com.shakshamkarki.practice.WARMUP_ALARM";
+    private static final int WARMUP_REQUEST_CODE = 0x5741524D;
+
+    public static final long MAX_LEAD_MS = 60 * 1000;
+    /** A warm player nobody claimed this long after its fire time is released by the pool */
+    private static final long CLAIM_GRACE_MS = 60 * 1000;
+
+    /**
+     * @return lead time in ms, 0 when warm-up is disabled
+     */
+    public static long getLeadMs(Context context) {
+        long leadMs = Long.parseLong(AlarmRegistry.getInstance(context).getSetting(SETTING_LEAD_MS, "0"));
+        // Saved before the limit came down
+        return Math.min(leadMs, MAX_LEAD_MS);
+    }
+
+    public static void setLeadMs(Context context, long leadMs) {
+        if (leadMs < 0 || leadMs > MAX_LEAD_MS) {
+            throw new IllegalArgumentException("Warm-up lead must be 0-" + MAX_LEAD_MS + "ms");
+        }
+        AlarmRegistry.getInstance(context).putSetting(SETTING_LEAD_MS, String.valueOf(leadMs));
+        rearm(context);
+    }
+
+    /**
+     * Point the warm-up at the soonest registered alarm. Called after every
+     * schedule change; never throws, since warm-up is only an optimization.
+     */
+    static void rearm(Context context) {
+        try {
+            AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+            if (alarmManager == null) {
+                return;
+            }
+
+            long leadMs = getLeadMs(context);
+            AlarmRegistry.Entry next = leadMs > 0 ? AlarmRegistry.getInstance(context).getNextDue() : null;
+            long warmAt = next != null ? next.fireTimeMs - leadMs : 0;
+            if (next == null || warmAt <= System.currentTimeMillis()) {
+                // Disabled, nothing scheduled, or too close to bother
+                PendingIntent existing = buildPendingIntent(context, null, PendingIntent.FLAG_NO_CREATE);
+                if (existing != null) {
+                    alarmManager.cancel(existing);
+                    existing.cancel();
+                }
+                return;
+            }
+
+            alarmManager.setExact(AlarmManager.RTC_WAKEUP, warmAt,
+                buildPendingIntent(context, next, PendingIntent.FLAG_UPDATE_CURRENT));
+            Log.d(TAG, "🌡️ Warm-up for " + next.alarmId + " armed " + leadMs + "ms ahead");
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to arm warm-up", e);
+        }
+    }
+
+    /**
+     * Prepare the player for an upcoming alarm. Blocking - call off the main thread.
+     */
+    static void warmUp(Context context, String alarmId, String audioPath, long fireTimeMs) {
+        AlarmRegistry.Entry entry = AlarmRegistry.getInstance(context).get(alarmId);
+        long untilFireMs = fireTimeMs - System.currentTimeMillis();
+        if (entry == null || entry.fireTimeMs != fireTimeMs || untilFireMs <= 0) {
+            Log.d(TAG, "⏭️ Skipping stale warm-up for " + alarmId);
+            return;
+        }
+
+        // Same process the fire will run in, so the service finds it
+        AlarmNotifications.prepareForFire(context, alarmId, audioPath);
+
+        if (AlarmPcmCache.lookup(context, audioPath) != null) {
+            Log.d(TAG, "⏭️ " + alarmId + " plays from the PCM cache - nothing to warm");
+            return;
+        }
+
+        // Only for the prepare - the device may sleep again until the fire wakes it
+        AlarmWakeLocks.acquire(context, AlarmWakeLocks.REASON_WARMUP, alarmId, AlarmWakeLocks.WARMUP_MAX_MS);
+        try {
+            prepare(context, alarmId, audioPath, untilFireMs);
+        } finally {
+            releaseWakeLock();
+        }
+    }
+
+    private static void prepare(Context context, String alarmId, String audioPath, long untilFireMs) {
+        long start = SystemClock.elapsedRealtime();
+        MediaPlayer player = new MediaPlayer();
+        try {
+            player.setAudioAttributes(new AudioAttributes.Builder()
+                .setUsage(AudioAttributes.USAGE_ALARM)
+                .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                .setFlags(AudioAttributes.FLAG_AUDIBILITY_ENFORCED)
+                .build());
+            if (!AlarmAudioSource.setDataSource(context, player, audioPath)) {
+                // The service falls back to the default sound itself; nothing worth warming
+                player.release();
+                return;
+            }
+            player.prepare();
+        } catch (Exception e) {
+            Log.w(TAG, "Warm-up prepare failed for " + alarmId, e);
+            player.release();
+            return;
+        }
+        long prepareMs = SystemClock.elapsedRealtime() - start;
+
+        AlarmPlayerPool.get(context).offer(audioPath, player, prepareMs, untilFireMs + CLAIM_GRACE_MS);
+        Log.d(TAG, "🔥 Warmed " + alarmId + " in " + prepareMs + "ms, " + untilFireMs + "ms before fire");
+    }
+
+    /**
+     * Prepare is done, or the alarm is ringing and holds its own wake lock
+     */
+    static void releaseWakeLock() {
+        AlarmWakeLocks.releaseAll(AlarmWakeLocks.REASON_WARMUP);
+    }
+
+    private static PendingIntent buildPendingIntent(Context context, AlarmRegistry.Entry entry, int flags) {
+        Intent intent = new Intent(context, AlarmWarmupReceiver.class);
+        intent.setAction(ACTION_WARMUP);
+        if (entry != null) {
+            intent.putExtra("alarmId", entry.alarmId);
+            intent.putExtra("audioPath", entry.audioPath);
+            intent.putExtra("fireTime", entry.fireTimeMs);
+        }
+        return PendingIntent.getBroadcast(context, WARMUP_REQUEST_CODE, intent,
+            flags | PendingIntent.FLAG_IMMUTABLE);
+    }
+}
@@ -0,0 +1,43 @@
+package com.shakshamkarki.practice;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Receives the pre-fire warm-up alarm and prepares the upcoming alarm's
+ * player off the main thread.
+ */
+public class AlarmWarmupReceiver extends BroadcastReceiver {
+    private static final String TAG = "AlarmWarmupReceiver";
+
+    private static final ExecutorService warmupExecutor = Executors.newSingleThreadExecutor();
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (!AlarmWarmup.ACTION_WARMUP.equals(intent.getAction())) {
+            Log.w(TAG, "Ignoring unexpected broadcast: " + intent.getAction());
+            return;
+        }
+
+        final String alarmId = intent.getStringExtra("alarmId");
+        final String audioPath = intent.getStringExtra("audioPath");
+        final long fireTimeMs = intent.getLongExtra("fireTime", 0);
+        final Context appContext = context.getApplicationContext();
+        final PendingResult pendingResult = goAsync();
+
+        warmupExecutor.execute(() -> {
+            try {
+                AlarmWarmup.warmUp(appContext, alarmId, audioPath, fireTimeMs);
+            } catch (Exception e) {
+                Log.e(TAG, "Warm-up failed for " + alarmId, e);
+            } finally {
+                pendingResult.finish();
+            }
+        });
+    }
+}
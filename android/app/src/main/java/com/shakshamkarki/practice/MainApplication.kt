@@ -2,6 +2,10 @@ package com.shakshamkarki.practice
 
 import android.app.Application
 import android.content.res.Configuration
+import android.os.Build
+import android.os.Process
+import android.os.SystemClock
+import android.util.Log
 
 import com.facebook.react.PackageList
 import com.facebook.react.ReactApplication
@@ -16,9 +20,15 @@ import com.facebook.soloader.SoLoader
 import expo.modules.ApplicationLifecycleDispatcher
 import expo.modules.ReactNativeHostWrapper
 
+import java.io.File
+import java.io.IOException
+
 class MainApplication : Application(), ReactApplication {
 
-  override val reactNativeHost: ReactNativeHost = ReactNativeHostWrapper(
+  // Built on first use; building it means React Native is initialized
+  override val reactNativeHost: ReactNativeHost by lazy {
+    ensureReactInitialized()
+    ReactNativeHostWrapper(
         this,
         object : DefaultReactNativeHost(this) {
           override fun getPackages(): List<ReactPackage> {
@@ -36,23 +46,74 @@ class MainApplication : Application(), ReactApplication {
           override val isNewArchEnabled: Boolean = BuildConfig.IS_NEW_ARCHITECTURE_ENABLED
           override val isHermesEnabled: Boolean = BuildConfig.IS_HERMES_ENABLED
       }
-  )
+    )
+  }
 
   override val reactHost: ReactHost
     get() = ReactNativeHostWrapper.createReactHost(applicationContext, reactNativeHost)
 
+  @Volatile
+  private var reactInitialized = false
+
   override fun onCreate() {
     super.onCreate()
+    if (isAlarmProcess()) {
+      // Nothing React Native here: ":alarm" only runs the native alarm path (receivers,
+      // AlarmAudioService, AlarmActivity), and every fire starts it cold
+      Log.d(TAG, "🚀 Alarm process up " + (SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime())
+          + "ms after start, React Native skipped")
+      return
+    }
+    // The main process hosts more than MainActivity - Expo's lifecycle listeners and anything
+    // React Native reaches through the Application expect it set up here
+    ensureReactInitialized()
+  }
+
+  private fun isAlarmProcess(): Boolean = currentProcessName().endsWith(ALARM_PROCESS_SUFFIX)
+
+  private fun currentProcessName(): String {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+      return Application.getProcessName()
+    }
+    return try {
+      File("/proc/self/cmdline").readText().substringBefore('\u0000').trim()
+    } catch (e: IOException) {
+      Log.w(TAG, "Could not read process name", e)
+      ""
+    }
+  }
+
+  /**
+   * SoLoader, the New Architecture entry point and Expo's application listeners. Runs once,
+   * on the main thread, from onCreate in every process but ":alarm".
+   */
+  @Synchronized
+  fun ensureReactInitialized() {
+    if (reactInitialized) {
+      return
+    }
+    val startMs = SystemClock.elapsedRealtime()
     SoLoader.init(this, OpenSourceMergedSoMapping)
     if (BuildConfig.IS_NEW_ARCHITECTURE_ENABLED) {
       // If you opted-in for the New Architecture, we load the native entry point for this app.
       load()
     }
     ApplicationLifecycleDispatcher.onApplicationCreate(this)
+    reactInitialized = true
+    Log.d(TAG, "⚛️ React Native initialized in " + (SystemClock.elapsedRealtime() - startMs) + "ms")
   }
 
   override fun onConfigurationChanged(newConfig: Configuration) {
     super.onConfigurationChanged(newConfig)
-    ApplicationLifecycleDispatcher.onConfigurationChanged(this, newConfig)
+    if (reactInitialized) {
+      ApplicationLifecycleDispatcher.onConfigurationChanged(this, newConfig)
+    }
+  }
+
+  companion object {
+    private const val TAG = "MainApplication"
+
+    /** android:process of the alarm components in the manifest */
+    private const val ALARM_PROCESS_SUFFIX = ":alarm"
   }
 }
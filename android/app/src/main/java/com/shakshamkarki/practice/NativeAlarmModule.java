@@ -1,22 +1,41 @@
 package com.shakshamkarki.practice;
 
 import android.app.AlarmManager;
-import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
 import android.util.Log;
 
+import androidx.core.content.ContextCompat;
+
+import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.ReactApplicationContext;
-import com.facebook.react.bridge.ReactContextBaseJavaModule;
-import com.facebook.react.bridge.ReactMethod;
 import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayList;
+import java.util.List;
 
-import java.util.Calendar;
+import javax.annotation.Nullable;
 
-public class NativeAlarmModule extends ReactContextBaseJavaModule {
+/**
+ * TurboModule implementation of the codegen'd NativeAlarmModuleSpec (src/specs/NativeAlarmModule.ts).
+ * Cheap reads are synchronous JSI calls; mutations stay Promise-based.
+ */
+public class NativeAlarmModule extends NativeAlarmModuleSpec {
     private static final String TAG = "NativeAlarmModule";
     private ReactApplicationContext reactContext;
 
+    /** Set once JS has subscribed to onAlarmEvents; until then events stay queued */
+    private boolean eventsAttached;
+    private BroadcastReceiver eventsQueuedReceiver;
+    /** Only changed through setSchedulerMode, so getArmedAlarmCount needn't read the setting */
+    private volatile Boolean singleArmed;
+
     public NativeAlarmModule(ReactApplicationContext reactContext) {
         super(reactContext);
         this.reactContext = reactContext;
@@ -24,40 +43,133 @@ public class NativeAlarmModule extends ReactContextBaseJavaModule {
 
     @Override
     public String getName() {
-        return "NativeAlarmModule";
+        return NAME;
     }
 
-    @ReactMethod
-    public void scheduleAlarm(String alarmId, double fireTimeMs, String audioPath, String alarmTime, Promise promise) {
+    @Override
+    public void invalidate() {
+        synchronized (this) {
+            eventsAttached = false;
+            if (eventsQueuedReceiver != null) {
+                getReactApplicationContext().unregisterReceiver(eventsQueuedReceiver);
+                eventsQueuedReceiver = null;
+            }
+        }
+        super.invalidate();
+    }
+
+    /**
+     * Called by JS right after it subscribes to onAlarmEvents. Replays everything
+     * queued while JS wasn't listening as one batch, then streams new events live.
+     */
+    @Override
+    public void attachAlarmEvents() {
+        synchronized (this) {
+            eventsAttached = true;
+            if (eventsQueuedReceiver == null) {
+                eventsQueuedReceiver = new BroadcastReceiver() {
+                    @Override
+                    public void onReceive(Context context, Intent intent) {
+                        emitQueuedEvents();
+                    }
+                };
+                ContextCompat.registerReceiver(
+                    getReactApplicationContext(),
+                    eventsQueuedReceiver,
+                    new IntentFilter(AlarmEvents.ACTION_EVENTS_QUEUED),
+                    ContextCompat.RECEIVER_NOT_EXPORTED
+                );
+            }
+        }
+        // Off the JS thread, so the synchronous reads find them loaded
+        AlarmRegistry.getInstance(getReactApplicationContext()).getSummary();
+        isSingleArmed();
+        emitQueuedEvents();
+    }
+
+    private void emitQueuedEvents() {
+        synchronized (this) {
+            if (!eventsAttached) {
+                return;
+            }
+        }
         try {
-            Log.d(TAG, "Scheduling native alarm: " + alarmId + " at " + fireTimeMs);
-            
-            Context context = getReactApplicationContext();
-            AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-            
-            if (alarmManager == null) {
-                promise.reject("ALARM_MANAGER_NULL", "AlarmManager is null");
+            List<AlarmEvents.Event> events = AlarmEvents.drain(getReactApplicationContext());
+            if (events.isEmpty()) {
                 return;
             }
+            // The alarm process may have re-armed or dropped alarms - JS re-reads on these events
+            AlarmRegistry.getInstance(getReactApplicationContext()).reloadSummary();
+
+            WritableArray eventArray = Arguments.createArray();
+            for (AlarmEvents.Event event : events) {
+                WritableMap map = Arguments.createMap();
+                map.putDouble("id", event.id);
+                map.putString("type", event.type);
+                map.putString("alarmId", event.alarmId);
+                map.putDouble("timestamp", event.atMs);
+                if (event.fireTimeMs != null) {
+                    map.putDouble("fireTime", event.fireTimeMs);
+                }
+                eventArray.pushMap(map);
+            }
+            WritableMap batch = Arguments.createMap();
+            batch.putArray("events", eventArray);
+            emitOnAlarmEvents(batch);
+            Log.d(TAG, "📣 Emitted " + events.size() + " alarm events to JS");
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to emit alarm events", e);
+        }
+    }
 
-            Intent intent = new Intent(context, AlarmReceiver.class);
-            intent.putExtra("alarmId", alarmId);
-            intent.putExtra("audioPath", audioPath);
-            intent.putExtra("alarmTime", alarmTime);
+    @Override
+    public double getNextAlarmTime() {
+        return AlarmRegistry.getInstance(getReactApplicationContext()).getSummary().nextFireTimeMs;
+    }
+
+    @Override
+    public double getArmedAlarmCount() {
+        Context context = getReactApplicationContext();
+        int registered = AlarmRegistry.getInstance(context).getSummary().count;
+        // Single-armed mode keeps at most one registration in AlarmManager
+        return isSingleArmed() ? Math.min(registered, 1) : registered;
+    }
+
+    private boolean isSingleArmed() {
+        Boolean cached = singleArmed;
+        if (cached == null) {
+            cached = AlarmScheduler.isSingleArmed(getReactApplicationContext());
+            singleArmed = cached;
+        }
+        return cached;
+    }
+
+    @Override
+    public boolean canScheduleExactAlarms() {
+        AlarmManager alarmManager = (AlarmManager) getReactApplicationContext().getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager != null && android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.S) {
+            return alarmManager.canScheduleExactAlarms();
+        }
+        return true; // Older Android versions don't need special permission
+    }
+
+    @Override
+    public @Nullable String getRingingAlarmId() {
+        try {
+            // Published to the registry by the alarm process - no call into it from the JS thread
+            return AlarmPlayback.getRingingAlarmId(getReactApplicationContext());
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to read the ringing alarm", e);
+            return null;
+        }
+    }
+
+    @Override
+    public void scheduleAlarm(String alarmId, double fireTimeMs, String audioPath, String alarmTime, Promise promise) {
+        try {
+            Log.d(TAG, "Scheduling native alarm: " + alarmId + " at " + fireTimeMs);
             
-            PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                context, 
-                alarmId.hashCode(), 
-                intent, 
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-            );
-
-            // Use setExactAndAllowWhileIdle for precise timing even in doze mode
-            alarmManager.setExactAndAllowWhileIdle(
-                AlarmManager.RTC_WAKEUP, 
-                (long) fireTimeMs, 
-                pendingIntent
-            );
+            AlarmScheduler.schedule(getReactApplicationContext(), alarmId, (long) fireTimeMs, audioPath, alarmTime, null);
 
             Log.d(TAG, "✅ Native alarm scheduled successfully");
             promise.resolve("Alarm scheduled");
@@ -68,29 +180,88 @@ public class NativeAlarmModule extends ReactContextBaseJavaModule {
         }
     }
 
-    @ReactMethod
-    public void cancelAlarm(String alarmId, Promise promise) {
+    /**
+     * Schedule a weekly alarm whose recurrence lives natively.
+     * daysMask uses the JS DAYS order (bit 0 = Sun ... bit 6 = Sat).
+     */
+    @Override
+    public void scheduleRepeatingAlarm(String alarmId, double daysMask, double hour, double minute, String audioPath,
+                                       String alarmTime, Promise promise) {
         try {
-            Log.d(TAG, "Canceling native alarm: " + alarmId);
-            
-            Context context = getReactApplicationContext();
-            AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-            
-            if (alarmManager == null) {
-                promise.reject("ALARM_MANAGER_NULL", "AlarmManager is null");
-                return;
+            Log.d(TAG, "Scheduling weekly native alarm: " + alarmId + " days=" + daysMask + " at " + hour + ":" + minute);
+
+            AlarmRecurrence recurrence = new AlarmRecurrence((int) daysMask, (int) hour, (int) minute, null);
+            long fireTimeMs = AlarmScheduler.scheduleRepeating(
+                getReactApplicationContext(), alarmId, recurrence, audioPath, alarmTime);
+
+            Log.d(TAG, "✅ Weekly native alarm scheduled, next at " + fireTimeMs);
+            promise.resolve((double) fireTimeMs);
+
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to schedule weekly alarm", e);
+            promise.reject("SCHEDULE_FAILED", e.getMessage());
+        }
+    }
+
+    /**
+     * Reconcile the native alarm set with the full desired state in one call.
+     * Each item: { alarmId, audioPath, alarmTime } plus either { fireTime } for a
+     * one-shot or { daysMask, hour, minute } for a weekly alarm.
+     */
+    @Override
+    public void syncAlarms(ReadableArray alarms, Promise promise) {
+        try {
+            long startNs = System.nanoTime();
+            long now = System.currentTimeMillis();
+
+            List<AlarmRegistry.Entry> desired = new ArrayList<>();
+            for (int i = 0; i < alarms.size(); i++) {
+                ReadableMap alarm = alarms.getMap(i);
+                String alarmId = alarm.getString("alarmId");
+                String audioPath = alarm.hasKey("audioPath") ? alarm.getString("audioPath") : "";
+                String alarmTime = alarm.hasKey("alarmTime") ? alarm.getString("alarmTime") : "Alarm";
+
+                AlarmRecurrence recurrence = null;
+                long fireTimeMs;
+                if (alarm.hasKey("daysMask") && alarm.getInt("daysMask") != 0) {
+                    recurrence = new AlarmRecurrence(alarm.getInt("daysMask"), alarm.getInt("hour"), alarm.getInt("minute"), null);
+                    fireTimeMs = recurrence.nextFireTime(now);
+                } else {
+                    fireTimeMs = (long) alarm.getDouble("fireTime");
+                    if (fireTimeMs <= now) {
+                        // A one-shot in the past has nothing left to arm
+                        continue;
+                    }
+                }
+                desired.add(new AlarmRegistry.Entry(alarmId, fireTimeMs, audioPath, alarmTime, null, recurrence, true));
             }
 
-            Intent intent = new Intent(context, AlarmReceiver.class);
-            PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                context, 
-                alarmId.hashCode(), 
-                intent, 
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-            );
+            AlarmScheduler.SyncResult result = AlarmScheduler.sync(getReactApplicationContext(), desired);
+            double durationMs = (System.nanoTime() - startNs) / 1e6;
+
+            Log.d(TAG, "🔄 Synced " + desired.size() + " alarms: +" + result.added + " ~" + result.updated
+                + " -" + result.canceled + " =" + result.unchanged + " in " + durationMs + "ms");
+
+            WritableMap summary = Arguments.createMap();
+            summary.putInt("added", result.added);
+            summary.putInt("updated", result.updated);
+            summary.putInt("canceled", result.canceled);
+            summary.putInt("unchanged", result.unchanged);
+            summary.putDouble("durationMs", durationMs);
+            promise.resolve(summary);
+
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to sync alarms", e);
+            promise.reject("SYNC_FAILED", e.getMessage());
+        }
+    }
 
-            alarmManager.cancel(pendingIntent);
-            pendingIntent.cancel();
+    @Override
+    public void cancelAlarm(String alarmId, Promise promise) {
+        try {
+            Log.d(TAG, "Canceling native alarm: " + alarmId);
+            
+            AlarmScheduler.cancel(getReactApplicationContext(), alarmId);
 
             Log.d(TAG, "✅ Native alarm canceled successfully");
             promise.resolve("Alarm canceled");
@@ -101,25 +272,49 @@ public class NativeAlarmModule extends ReactContextBaseJavaModule {
         }
     }
 
-    @ReactMethod
+    @Override
+    public void cancelAlarmsWithPrefix(String prefix, Promise promise) {
+        try {
+            Log.d(TAG, "Canceling native alarms with prefix: " + prefix);
+
+            int canceledCount = AlarmScheduler.cancelByPrefix(getReactApplicationContext(), prefix);
+
+            Log.d(TAG, "✅ Canceled " + canceledCount + " alarms with prefix " + prefix);
+            promise.resolve(canceledCount);
+
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to cancel alarms with prefix", e);
+            promise.reject("CANCEL_PREFIX_FAILED", e.getMessage());
+        }
+    }
+
+    /**
+     * Ring right now through the same pipeline as a fire. Resolves once audio is
+     * actually coming out: { alarmId, timeToFirstAudioMs, source }. Rejects with
+     * the reason if it never does (STOPPED, START_FAILED, PLAYER_ERROR, NO_AUDIO, TIMEOUT).
+     */
+    @Override
     public void startImmediateAlarm(String alarmId, String audioUri, Promise promise) {
         try {
             Log.d(TAG, "🚨 Starting immediate alarm: " + alarmId + " with audio: " + audioUri);
             
-            Context context = getReactApplicationContext();
-            
-            // Create intent for immediate alarm playback
-            Intent intent = new Intent(context, AlarmReceiver.class);
-            intent.putExtra("alarmId", alarmId);
-            intent.putExtra("audioUri", audioUri);
-            intent.putExtra("immediate", true);
-            
-            // Trigger the alarm receiver immediately
-            AlarmReceiver receiver = new AlarmReceiver();
-            receiver.onReceive(context, intent);
-            
-            Log.d(TAG, "✅ Immediate alarm started successfully");
-            promise.resolve("Immediate alarm started");
+            AlarmProcess.startAndAwait(getReactApplicationContext(), alarmId, audioUri, new AlarmProcess.StartCallback() {
+                @Override
+                public void onFirstAudio(long timeToFirstAudioMs, String source) {
+                    Log.d(TAG, "✅ Immediate alarm audible after " + timeToFirstAudioMs + "ms (" + source + ")");
+                    WritableMap result = Arguments.createMap();
+                    result.putString("alarmId", alarmId);
+                    result.putDouble("timeToFirstAudioMs", timeToFirstAudioMs);
+                    result.putString("source", source);
+                    promise.resolve(result);
+                }
+
+                @Override
+                public void onFailure(String code, String message) {
+                    Log.e(TAG, "Immediate alarm failed: " + code + " " + message);
+                    promise.reject(code, message);
+                }
+            });
             
         } catch (Exception e) {
             Log.e(TAG, "Failed to start immediate alarm", e);
@@ -127,20 +322,14 @@ public class NativeAlarmModule extends ReactContextBaseJavaModule {
         }
     }
 
-    @ReactMethod
+    @Override
     public void stopCurrentAlarm(Promise promise) {
         try {
             Log.d(TAG, "🛑 Stopping current alarm and foreground service from JS");
             
             Context context = getReactApplicationContext();
-            
-            // Stop the foreground service
-            Intent serviceIntent = new Intent(context, AlarmAudioService.class);
-            serviceIntent.setAction(AlarmAudioService.ACTION_STOP_ALARM);
-            context.startService(serviceIntent);
-            
-            // Also stop any old receiver-based audio (fallback)
-            AlarmReceiver.stopAlarmAudio();
+            // The whole ringing session is dismissed together; nothing to do if it already was
+            AlarmProcess.stop(context, null);
             
             Log.d(TAG, "✅ Alarm and foreground service stop command sent");
             promise.resolve("Alarm stopped");
@@ -150,83 +339,232 @@ public class NativeAlarmModule extends ReactContextBaseJavaModule {
         }
     }
 
-    @ReactMethod
-    public void checkAlarmPermissions(Promise promise) {
+    /**
+     * "per_alarm" arms every alarm with AlarmManager; "single_armed" keeps the
+     * set in the native registry and arms only the soonest one
+     */
+    @Override
+    public void setSchedulerMode(String mode, Promise promise) {
+        try {
+            AlarmScheduler.setMode(getReactApplicationContext(), mode);
+            singleArmed = AlarmScheduler.MODE_SINGLE_ARMED.equals(mode);
+            promise.resolve(mode);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to set scheduler mode", e);
+            promise.reject("SCHEDULER_MODE_FAILED", e.getMessage());
+        }
+    }
+
+    /**
+     * Prepare the next alarm's audio this long before it is due; 0 disables warm-up
+     */
+    @Override
+    public void setWarmupLeadTime(double leadMs, Promise promise) {
+        try {
+            AlarmWarmup.setLeadMs(getReactApplicationContext(), (long) leadMs);
+            promise.resolve(leadMs);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to set warm-up lead time", e);
+            promise.reject("WARMUP_FAILED", e.getMessage());
+        }
+    }
+
+    /**
+     * Alarms firing within this long of a ringing one join its session; 0 disables coalescing
+     */
+    @Override
+    public void setCoalesceWindow(double windowMs, Promise promise) {
+        try {
+            AlarmPlayback.setCoalesceWindowMs(getReactApplicationContext(), (long) windowMs);
+            // The alarm process keeps its own copy
+            AlarmProcess.reloadSettings(getReactApplicationContext());
+            promise.resolve(windowMs);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to set coalescing window", e);
+            promise.reject("COALESCE_FAILED", e.getMessage());
+        }
+    }
+
+    @Override
+    public void setRingPolicy(String alarmId, ReadableMap policy, Promise promise) {
+        try {
+            AlarmRingPolicy ringPolicy = new AlarmRingPolicy(
+                policy.hasKey("maxRingMs") ? (long) policy.getDouble("maxRingMs") : AlarmRingPolicy.DEFAULT.maxRingMs,
+                policy.hasKey("autoSnoozes") ? policy.getInt("autoSnoozes") : AlarmRingPolicy.DEFAULT.autoSnoozes,
+                policy.hasKey("snoozeMs") ? (long) policy.getDouble("snoozeMs") : AlarmRingPolicy.DEFAULT.snoozeMs,
+                policy.hasKey("escalateAfterMs") ? (long) policy.getDouble("escalateAfterMs") : 0,
+                policy.hasKey("maxSnoozes") ? policy.getInt("maxSnoozes") : AlarmRingPolicy.DEFAULT.maxSnoozes);
+            // Empty ID sets the default for alarms without their own policy
+            AlarmRingPolicy.set(getReactApplicationContext(), alarmId.isEmpty() ? null : alarmId, ringPolicy);
+            WritableMap result = Arguments.createMap();
+            result.putDouble("maxRingMs", ringPolicy.maxRingMs);
+            result.putInt("autoSnoozes", ringPolicy.autoSnoozes);
+            result.putDouble("snoozeMs", ringPolicy.snoozeMs);
+            result.putDouble("escalateAfterMs", ringPolicy.escalateAfterMs);
+            result.putInt("maxSnoozes", ringPolicy.maxSnoozes);
+            promise.resolve(result);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to set ring policy", e);
+            promise.reject("RING_POLICY_FAILED", e.getMessage());
+        }
+    }
+
+    @Override
+    public void getSchedulerMode(Promise promise) {
+        try {
+            promise.resolve(AlarmScheduler.getMode(getReactApplicationContext()));
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to read scheduler mode", e);
+            promise.reject("SCHEDULER_MODE_FAILED", e.getMessage());
+        }
+    }
+
+    /**
+     * Details of the last boot / time-change restore, or null if none has run
+     */
+    @Override
+    public void getLastRestoreInfo(Promise promise) {
+        try {
+            AlarmRegistry registry = AlarmRegistry.getInstance(getReactApplicationContext());
+            String reason = registry.getSetting(AlarmRestoreReceiver.SETTING_LAST_RESTORE_REASON, null);
+            if (reason == null) {
+                promise.resolve(null);
+                return;
+            }
+
+            WritableMap info = Arguments.createMap();
+            info.putString("reason", reason);
+            info.putInt("restoredCount", Integer.parseInt(registry.getSetting(AlarmRestoreReceiver.SETTING_LAST_RESTORE_COUNT, "0")));
+            info.putDouble("durationMs", Double.parseDouble(registry.getSetting(AlarmRestoreReceiver.SETTING_LAST_RESTORE_MS, "0")));
+            info.putDouble("restoredAt", Double.parseDouble(registry.getSetting(AlarmRestoreReceiver.SETTING_LAST_RESTORE_AT, "0")));
+            promise.resolve(info);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to read restore info", e);
+            promise.reject("RESTORE_INFO_FAILED", e.getMessage());
+        }
+    }
+
+    /**
+     * Fire-to-sound latency per stage (ms): { totalRecorded, stages: { name: { count, p50, p95, p99, max } },
+     * playerPool: { hits, misses }, sessions: { started, coalesced },
+     * receiverWork: { action: { count, avgWaitMs, maxWaitMs, avgRunMs, maxRunMs } },
+     * alarmProcess: { pid, rssKb, reactNativeLibraries: [name] } }
+     */
+    @Override
+    public void getAlarmMetrics(Promise promise) {
         try {
             Context context = getReactApplicationContext();
-            AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-            
-            if (alarmManager != null && android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.S) {
-                boolean canScheduleExactAlarms = alarmManager.canScheduleExactAlarms();
-                promise.resolve(canScheduleExactAlarms);
-            } else {
-                promise.resolve(true); // Older Android versions don't need special permission
+            WritableMap stages = Arguments.createMap();
+            for (AlarmMetrics.IntervalStats interval : AlarmMetrics.summarize(context)) {
+                WritableMap stats = Arguments.createMap();
+                stats.putInt("count", interval.count);
+                stats.putDouble("p50", interval.p50);
+                stats.putDouble("p95", interval.p95);
+                stats.putDouble("p99", interval.p99);
+                stats.putDouble("max", interval.max);
+                stages.putMap(interval.name, stats);
+            }
+
+            // Counters below live in the alarm process's memory
+            AlarmProcess.Status status = AlarmProcess.getStatus(context);
+            WritableMap playerPool = Arguments.createMap();
+            playerPool.putInt("hits", status.poolHits);
+            playerPool.putInt("misses", status.poolMisses);
+
+            WritableMap sessions = Arguments.createMap();
+            sessions.putInt("started", status.sessionsStarted);
+            sessions.putInt("coalesced", status.coalescedFires);
+
+            WritableMap receiverWork = Arguments.createMap();
+            for (AlarmReceiverWork.Stat stat : status.receiverWork) {
+                WritableMap map = Arguments.createMap();
+                map.putInt("count", stat.count);
+                map.putDouble("avgWaitMs", stat.avgWaitMs);
+                map.putDouble("maxWaitMs", stat.maxWaitMs);
+                map.putDouble("avgRunMs", stat.avgRunMs);
+                map.putDouble("maxRunMs", stat.maxRunMs);
+                receiverWork.putMap(stat.action, map);
             }
+
+            WritableMap result = Arguments.createMap();
+            result.putDouble("totalRecorded", AlarmMetrics.totalRecorded(context));
+            result.putMap("stages", stages);
+            result.putMap("playerPool", playerPool);
+            result.putMap("sessions", sessions);
+            result.putMap("receiverWork", receiverWork);
+
+            WritableMap alarmProcess = Arguments.createMap();
+            alarmProcess.putInt("pid", status.pid);
+            alarmProcess.putDouble("rssKb", status.rssKb);
+            WritableArray libraries = Arguments.createArray();
+            for (String library : status.reactNativeLibraries) {
+                libraries.pushString(library);
+            }
+            alarmProcess.putArray("reactNativeLibraries", libraries);
+            result.putMap("alarmProcess", alarmProcess);
+            promise.resolve(result);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to read alarm metrics", e);
+            promise.reject("METRICS_FAILED", e.getMessage());
+        }
+    }
+
+    @Override
+    public void getWakeLockStats(Promise promise) {
+        try {
+            WritableArray alarms = Arguments.createArray();
+            for (AlarmWakeLocks.Stat stat : AlarmWakeLocks.getStats(getReactApplicationContext())) {
+                WritableMap map = Arguments.createMap();
+                map.putString("alarmId", stat.alarmId);
+                map.putString("reason", stat.reason);
+                map.putDouble("heldMs", stat.heldMs);
+                map.putInt("holds", stat.holds);
+                map.putInt("timeouts", stat.timeouts);
+                alarms.pushMap(map);
+            }
+
+            WritableArray active = Arguments.createArray();
+            // Holds are taken in the alarm process
+            for (AlarmWakeLocks.Active hold : AlarmProcess.getStatus(getReactApplicationContext()).activeWakeLocks) {
+                WritableMap map = Arguments.createMap();
+                map.putString("alarmId", hold.alarmId);
+                map.putString("reason", hold.reason);
+                map.putInt("count", hold.count);
+                map.putDouble("heldMs", hold.heldMs);
+                map.putDouble("remainingMs", hold.remainingMs);
+                active.pushMap(map);
+            }
+
+            WritableMap result = Arguments.createMap();
+            result.putArray("alarms", alarms);
+            result.putArray("active", active);
+            promise.resolve(result);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to read wake lock stats", e);
+            promise.reject("WAKELOCK_STATS_FAILED", e.getMessage());
+        }
+    }
+
+    @Override
+    public void checkAlarmPermissions(Promise promise) {
+        try {
+            promise.resolve(canScheduleExactAlarms());
         } catch (Exception e) {
             Log.e(TAG, "Failed to check alarm permissions", e);
             promise.reject("PERMISSION_CHECK_FAILED", e.getMessage());
         }
     }
 
-    @ReactMethod
+    @Override
     public void cancelAllAlarms(Promise promise) {
         try {
-            Log.d(TAG, "🧹🧹🧹 CLEANUP: Canceling ALL scheduled alarms to prevent 500 limit 🧹🧹🧹");
-            
-            Context context = getReactApplicationContext();
-            AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+            Log.d(TAG, "🧹 CLEANUP: Canceling all registered alarms");
             
-            int canceledCount = 0;
+            long startNs = System.nanoTime();
+            int canceledCount = AlarmScheduler.cancelAll(getReactApplicationContext());
+            long elapsedUs = (System.nanoTime() - startNs) / 1000;
             
-            // Cancel alarms by creating intents with the same action but different IDs
-            // We'll try to cancel a reasonable range of potential alarm IDs
-            for (int i = 0; i < 1000; i++) {
-                try {
-                    Intent intent = new Intent(context, AlarmReceiver.class);
-                    PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                        context, 
-                        i, 
-                        intent, 
-                        PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE
-                    );
-                    
-                    if (pendingIntent != null) {
-                        alarmManager.cancel(pendingIntent);
-                        pendingIntent.cancel();
-                        canceledCount++;
-                    }
-                } catch (Exception e) {
-                    // Ignore individual cancellation errors
-                }
-            }
-            
-            // Also try string-based alarm IDs that we commonly use
-            String[] commonPrefixes = {"alarm-", "test-", "snooze-", ""};
-            for (String prefix : commonPrefixes) {
-                for (int i = 0; i < 100; i++) {
-                    try {
-                        String alarmId = prefix + i;
-                        Intent intent = new Intent(context, AlarmReceiver.class);
-                        PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                            context, 
-                            alarmId.hashCode(), 
-                            intent, 
-                            PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE
-                        );
-                        
-                        if (pendingIntent != null) {
-                            alarmManager.cancel(pendingIntent);
-                            pendingIntent.cancel();
-                            canceledCount++;
-                        }
-                    } catch (Exception e) {
-                        // Ignore individual cancellation errors
-                    }
-                }
-            }
-            
-            Log.d(TAG, "✅ CLEANUP: Canceled " + canceledCount + " existing alarms");
-            Log.d(TAG, "🔄 Ready to schedule new alarms without hitting 500 limit");
+            Log.d(TAG, "✅ CLEANUP: Canceled " + canceledCount + " alarms in " + elapsedUs + "us");
             promise.resolve("Canceled " + canceledCount + " alarms");
             
         } catch (Exception e) {
@@ -234,5 +572,71 @@ public class NativeAlarmModule extends ReactContextBaseJavaModule {
             promise.reject("CANCEL_ALL_FAILED", e.getMessage());
         }
     }
-}
 
+    /**
+     * Compare the old request-code probe against AlarmScheduler.cancelAll with
+     * liveCount throwaway alarms armed at IDs the probe looks for, so both
+     * sides find and cancel every one. Per-alarm mode only - single-armed
+     * mode has no per-alarm PendingIntents to probe for. Refuses to run while
+     * any alarm is registered, as cancelAll would take it (and its ring
+     * policy) down with the throwaway ones.
+     */
+    @Override
+    public void benchmarkCancelAll(double liveCountArg, Promise promise) {
+        final int liveCount = (int) liveCountArg;
+        final Context context = getReactApplicationContext();
+        final List<String> seedIds = AlarmScheduler.legacyProbeIds();
+        if (liveCount < 0 || liveCount > seedIds.size()) {
+            promise.reject("INVALID_COUNT", "liveCount must be 0-" + seedIds.size());
+            return;
+        }
+        if (AlarmScheduler.isSingleArmed(context)) {
+            promise.reject("BENCHMARK_UNSUPPORTED", "Cancel-all benchmark needs per-alarm mode");
+            return;
+        }
+        int registered = AlarmRegistry.getInstance(context).count();
+        if (registered > 0) {
+            promise.reject("BENCHMARK_CONFLICT", "Cancel-all benchmark needs an empty registry (" + registered + " alarms)");
+            return;
+        }
+
+        try {
+            // Get the one-time legacy sweep out of the way so it isn't timed below
+            AlarmScheduler.cancelAll(context);
+
+            long farFuture = System.currentTimeMillis() + 365L * 24 * 60 * 60 * 1000;
+            List<AlarmRegistry.Entry> entries = new ArrayList<>();
+            for (String alarmId : seedIds.subList(0, liveCount)) {
+                entries.add(new AlarmRegistry.Entry(alarmId, farFuture, "", "Benchmark", null));
+            }
+            AlarmScheduler.seedForBenchmark(context, entries);
+
+            long probeStartNs = System.nanoTime();
+            int probeHits = AlarmScheduler.probeCancelAll(context);
+            long probeUs = (System.nanoTime() - probeStartNs) / 1000;
+
+            // The probe only dropped the PendingIntents - arm them again for the registry side
+            AlarmScheduler.seedForBenchmark(context, entries);
+
+            long registryStartNs = System.nanoTime();
+            int registryCanceled = AlarmScheduler.cancelAll(context);
+            long registryUs = (System.nanoTime() - registryStartNs) / 1000;
+
+            Log.d(TAG, "⏱️ Cancel-all benchmark (" + liveCount + " live): probe " + probeUs
+                + "us (" + probeHits + " hits), registry " + registryUs + "us (" + registryCanceled + " canceled)");
+
+            WritableMap result = Arguments.createMap();
+            result.putInt("liveCount", liveCount);
+            result.putDouble("probeUs", probeUs);
+            result.putInt("probeHits", probeHits);
+            result.putDouble("registryUs", registryUs);
+            result.putInt("registryCanceled", registryCanceled);
+            promise.resolve(result);
+
+        } catch (Exception e) {
+            Log.e(TAG, "Cancel-all benchmark failed", e);
+            AlarmScheduler.cancelAll(context);
+            promise.reject("BENCHMARK_FAILED", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.shakshamkarki.practice;
+
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioTrack;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Loops a cached PCM file through an AudioTrack with USAGE_ALARM.
+ *
+ * The file is memory-mapped and streamed by one writer thread that wraps back
+ * to the first sample without a gap - no codec, so starting takes a few ms and
+ * ringing costs little more than a memcpy.
+ */
+public class PcmAlarmPlayer {
+    private static final String TAG = "PcmAlarmPlayer";
+    private static final int WRITE_CHUNK_BYTES = 16 * 1024;
+
+    private final AudioTrack track;
+    private final MappedByteBuffer pcm;
+    private final Thread writer;
+    private volatile boolean running;
+
+    private PcmAlarmPlayer(AudioTrack track, MappedByteBuffer pcm) {
+        this.track = track;
+        this.pcm = pcm;
+        this.writer = new Thread(this::writeLoop, "PcmAlarmWriter");
+    }
+
+    public static PcmAlarmPlayer open(AlarmPcmCache.Info info) throws IOException {
+        MappedByteBuffer pcm;
+        try (RandomAccessFile raf = new RandomAccessFile(info.file, "r")) {
+            FileChannel channel = raf.getChannel();
+            pcm = channel.map(FileChannel.MapMode.READ_ONLY, AlarmPcmCache.HEADER_BYTES,
+                channel.size() - AlarmPcmCache.HEADER_BYTES);
+        }
+
+        int channelMask = info.channelCount == 1 ? AudioFormat.CHANNEL_OUT_MONO : AudioFormat.CHANNEL_OUT_STEREO;
+        int minBuffer = AudioTrack.getMinBufferSize(info.sampleRate, channelMask, AudioFormat.ENCODING_PCM_16BIT);
+        if (minBuffer <= 0) {
+            throw new IOException("Unsupported PCM format " + info.sampleRate + "Hz x" + info.channelCount);
+        }
+
+        AudioTrack track = new AudioTrack.Builder()
+            .setAudioAttributes(new AudioAttributes.Builder()
+                .setUsage(AudioAttributes.USAGE_ALARM)
+                .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                .setFlags(AudioAttributes.FLAG_AUDIBILITY_ENFORCED)
+                .build())
+            .setAudioFormat(new AudioFormat.Builder()
+                .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                .setSampleRate(info.sampleRate)
+                .setChannelMask(channelMask)
+                .build())
+            .setTransferMode(AudioTrack.MODE_STREAM)
+            .setBufferSizeInBytes(Math.max(minBuffer * 2, WRITE_CHUNK_BYTES))
+            .build();
+        if (track.getState() != AudioTrack.STATE_INITIALIZED) {
+            track.release();
+            throw new IOException("AudioTrack failed to initialize");
+        }
+        return new PcmAlarmPlayer(track, pcm);
+    }
+
+    public void start() {
+        running = true;
+        track.setVolume(1.0f);
+        track.play();
+        writer.start();
+    }
+
+    /**
+     * Frames the hardware has played since start() - non-zero once sound is out
+     */
+    public long getPlaybackHeadPosition() {
+        return track.getPlaybackHeadPosition() & 0xFFFFFFFFL;
+    }
+
+    public void release() {
+        running = false;
+        try {
+            track.pause();
+            track.flush();
+            // Unblocks a writer stuck in a blocking write()
+            track.stop();
+            writer.join(200);
+        } catch (Exception e) {
+            Log.w(TAG, "Error stopping PCM playback", e);
+        } finally {
+            track.release();
+        }
+    }
+
+    private void writeLoop() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+        ByteBuffer source = pcm.duplicate();
+        while (running) {
+            if (!source.hasRemaining()) {
+                source.rewind(); // Sample-accurate loop point
+            }
+            int chunk = Math.min(WRITE_CHUNK_BYTES, source.remaining());
+            ByteBuffer slice = source.slice();
+            slice.limit(chunk);
+            int written = track.write(slice, chunk, AudioTrack.WRITE_BLOCKING);
+            if (written < 0) {
+                Log.e(TAG, "AudioTrack write failed: " + written);
+                return;
+            }
+            source.position(source.position() + written);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.shakshamkarki.practice;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import android.app.Application;
+import android.content.ContentProvider;
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.UriPermission;
+import android.content.res.AssetFileDescriptor;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One test per URI shape AlarmAudioSource opens, plus the ones it must refuse
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class AlarmAudioSourceTest {
+    private static final byte[] AUDIO = "0123456789abcdef".getBytes();
+    private static final String AUTHORITY = "com.shakshamkarki.practice.test.audio";
+
+    private Context context;
+    private File recordings;
+
+    @Before
+    public void setUp() throws IOException {
+        context = RuntimeEnvironment.getApplication();
+        recordings = new File(context.getFilesDir(), "recordings");
+        recordings.mkdirs();
+    }
+
+    @Test
+    public void emptyUriHasNoSource() throws IOException {
+        assertNull(AlarmAudioSource.open(context, null));
+        assertNull(AlarmAudioSource.open(context, ""));
+    }
+
+    @Test
+    public void opensBareAbsolutePath() throws IOException {
+        File file = write("alarm.m4a");
+        assertWholeFile(AlarmAudioSource.open(context, file.getAbsolutePath()));
+    }
+
+    @Test
+    public void opensEncodedFileUri() throws IOException {
+        File file = write("my alarm.m4a");
+        assertWholeFile(AlarmAudioSource.open(context, Uri.fromFile(file).toString()));
+    }
+
+    @Test
+    public void opensUnencodedFileUri() throws IOException {
+        // Built by string concatenation in JS - decoding "%20" would name a file that doesn't exist
+        File file = write("my%20alarm.m4a");
+        assertWholeFile(AlarmAudioSource.open(context, "file://" + file.getAbsolutePath()));
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void missingFileFailsToOpen() throws IOException {
+        AlarmAudioSource.open(context, "file://" + new File(recordings, "deleted.m4a").getAbsolutePath());
+    }
+
+    @Test
+    public void opensContentUriWithOffsetAndLength() throws IOException {
+        Robolectric.setupContentProvider(AudioProvider.class, AUTHORITY);
+        try (AssetFileDescriptor afd = AlarmAudioSource.open(context, "content://" + AUTHORITY + "/alarm.m4a")) {
+            assertNotNull(afd);
+            // The provider's slice reaches the player unchanged
+            assertEquals(AudioProvider.OFFSET, afd.getStartOffset());
+            assertEquals(AudioProvider.LENGTH, afd.getDeclaredLength());
+            try (FileInputStream in = new FileInputStream(afd.getFileDescriptor())) {
+                in.getChannel().position(afd.getStartOffset());
+                byte[] read = new byte[(int) afd.getDeclaredLength()];
+                assertEquals(read.length, in.read(read));
+                assertArrayEquals(Arrays.copyOfRange(AUDIO, (int) AudioProvider.OFFSET,
+                    (int) (AudioProvider.OFFSET + AudioProvider.LENGTH)), read);
+            }
+        }
+    }
+
+    @Test
+    public void androidResourceUriOpensThroughContentResolver() {
+        // Robolectric can't hand out descriptors into resources, so check the lookup the open goes through
+        String uri = ContentResolver.SCHEME_ANDROID_RESOURCE + "://" + context.getPackageName() + "/raw/missing_alarm";
+        try {
+            AlarmAudioSource.open(context, uri);
+            fail("Opened a resource that doesn't exist");
+        } catch (FileNotFoundException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("No resource found"));
+        }
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void contentUriWithoutProviderFailsToOpen() throws IOException {
+        AlarmAudioSource.open(context, "content://com.shakshamkarki.practice.test.missing/alarm.m4a");
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void unsupportedSchemeFailsToOpen() throws IOException {
+        AlarmAudioSource.open(context, "https://example.com/alarm.m4a");
+    }
+
+    @Test
+    public void retainIgnoresUrisWithoutPersistableGrant() {
+        AlarmAudioSource.retain(context, null);
+        AlarmAudioSource.retain(context, "");
+        AlarmAudioSource.retain(context, "/data/alarm.m4a");
+        AlarmAudioSource.retain(context, "file:///data/alarm.m4a");
+        AlarmAudioSource.retain(context, "android.resource://" + context.getPackageName() + "/raw/alarm");
+        assertEquals(0, context.getContentResolver().getPersistedUriPermissions().size());
+    }
+
+    @Test
+    public void retainPersistsContentUriReadGrant() {
+        // Robolectric grants every request; a real provider without a persistable grant throws, which retain swallows
+        String uri = "content://" + AUTHORITY + "/alarm.m4a";
+        AlarmAudioSource.retain(context, uri);
+        List<UriPermission> persisted = context.getContentResolver().getPersistedUriPermissions();
+        assertEquals(1, persisted.size());
+        assertEquals(Uri.parse(uri), persisted.get(0).getUri());
+        assertTrue(persisted.get(0).isReadPermission());
+    }
+
+    private File write(String name) throws IOException {
+        File file = new File(recordings, name);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(AUDIO);
+        }
+        return file;
+    }
+
+    private static void assertWholeFile(AssetFileDescriptor afd) throws IOException {
+        assertNotNull(afd);
+        try (AssetFileDescriptor opened = afd;
+             FileInputStream in = new FileInputStream(opened.getFileDescriptor())) {
+            assertEquals(0, opened.getStartOffset());
+            assertEquals(AssetFileDescriptor.UNKNOWN_LENGTH, opened.getDeclaredLength());
+            byte[] read = new byte[AUDIO.length];
+            assertEquals(AUDIO.length, in.read(read));
+            assertArrayEquals(AUDIO, read);
+        }
+    }
+
+    /** Serves a slice of a file, as providers backed by one big file do */
+    public static class AudioProvider extends ContentProvider {
+        static final long OFFSET = 4;
+        static final long LENGTH = 8;
+
+        @Override
+        public AssetFileDescriptor openAssetFile(Uri uri, String mode) throws FileNotFoundException {
+            File file = new File(getContext().getCacheDir(), "provided.m4a");
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                out.write(AUDIO);
+            } catch (IOException e) {
+                throw new FileNotFoundException(e.getMessage());
+            }
+            return new AssetFileDescriptor(
+                ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY), OFFSET, LENGTH);
+        }
+
+        @Override
+        public boolean onCreate() {
+            return true;
+        }
+
+        @Override
+        public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+            return null;
+        }
+
+        @Override
+        public String getType(Uri uri) {
+            return "audio/mp4";
+        }
+
+        @Override
+        public Uri insert(Uri uri, ContentValues values) {
+            return null;
+        }
+
+        @Override
+        public int delete(Uri uri, String selection, String[] selectionArgs) {
+            return 0;
+        }
+
+        @Override
+        public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.shakshamkarki.practice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+public class AlarmRecurrenceTest {
+    private static final String NEW_YORK = "America/New_York";
+    private static final int SUNDAY = 1;
+    private static final int MONDAY = 1 << 1;
+    private static final int FRIDAY = 1 << 5;
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+    private static final long WEEK_MS = 7 * 24 * HOUR_MS;
+    private static final long MINUTE_MS = 60 * 1000L;
+
+    /** Northern and southern DST, Lord Howe's 30-minute shift, Chile's midnight changes and no DST at all */
+    private static final String[] DST_ZONES = {
+        "America/New_York", "Europe/London", "Europe/Berlin", "Australia/Sydney",
+        "Australia/Lord_Howe", "Pacific/Auckland", "America/Santiago", "Asia/Kolkata"
+    };
+    /** Times inside, at the edges of and away from the zones' gaps and overlaps */
+    private static final int[][] DST_TIMES = {
+        {0, 0}, {0, 30}, {1, 0}, {1, 30}, {1, 59}, {2, 0}, {2, 15}, {2, 30}, {3, 0}, {8, 0}, {23, 30}
+    };
+    /** Offsets from each transition to compute the next fire time after */
+    private static final long[] AROUND_TRANSITION_MS = {
+        -24 * HOUR_MS, -2 * HOUR_MS, -HOUR_MS, -30 * MINUTE_MS, -MINUTE_MS, 0,
+        MINUTE_MS, 30 * MINUTE_MS, HOUR_MS, 2 * HOUR_MS, 24 * HOUR_MS
+    };
+    private static final int FIRST_YEAR = 2024;
+    private static final int LAST_YEAR = 2035;
+
+    @Test
+    public void laterTodayRingsToday() {
+        // Monday 2025-06-02 07:00 EDT
+        long after = wall(NEW_YORK, 2025, Calendar.JUNE, 2, 7, 0);
+        AlarmRecurrence recurrence = new AlarmRecurrence(MONDAY, 8, 30, NEW_YORK);
+        assertEquals(wall(NEW_YORK, 2025, Calendar.JUNE, 2, 8, 30), recurrence.nextFireTime(after));
+    }
+
+    @Test
+    public void exactlyAtTheTimeMovesToNextWeek() {
+        long at = wall(NEW_YORK, 2025, Calendar.JUNE, 2, 8, 30);
+        AlarmRecurrence recurrence = new AlarmRecurrence(MONDAY, 8, 30, NEW_YORK);
+        assertEquals(at + WEEK_MS, recurrence.nextFireTime(at));
+    }
+
+    @Test
+    public void skipsToNextSelectedDay() {
+        // Monday evening, alarm on Mondays and Fridays
+        long after = wall(NEW_YORK, 2025, Calendar.JUNE, 2, 20, 0);
+        AlarmRecurrence recurrence = new AlarmRecurrence(MONDAY | FRIDAY, 8, 30, NEW_YORK);
+        assertEquals(wall(NEW_YORK, 2025, Calendar.JUNE, 6, 8, 30), recurrence.nextFireTime(after));
+    }
+
+    @Test
+    public void springForwardGapRingsAtShiftedInstant() {
+        // 2025-03-09 02:30 doesn't exist in New York - clocks go from 02:00 EST to 03:00 EDT
+        long after = wall(NEW_YORK, 2025, Calendar.MARCH, 8, 12, 0);
+        AlarmRecurrence recurrence = new AlarmRecurrence(SUNDAY, 2, 30, NEW_YORK);
+        assertEquals(1741505400000L, recurrence.nextFireTime(after)); // 07:30 UTC = 03:30 EDT
+    }
+
+    @Test
+    public void fallBackRepeatRingsAtFirstOccurrence() {
+        // 2025-11-02 01:30 happens twice in New York: 05:30 UTC (EDT), then 06:30 UTC (EST)
+        long after = wall(NEW_YORK, 2025, Calendar.NOVEMBER, 1, 12, 0);
+        AlarmRecurrence recurrence = new AlarmRecurrence(SUNDAY, 1, 30, NEW_YORK);
+        assertEquals(1762061400000L, recurrence.nextFireTime(after));
+    }
+
+    @Test
+    public void fallBackRepeatRingsOnlyOnce() {
+        // Re-armed from the first occurrence: the repeat an hour later is skipped
+        AlarmRecurrence recurrence = new AlarmRecurrence(SUNDAY, 1, 30, NEW_YORK);
+        long next = recurrence.nextFireTime(1762061400000L);
+        assertEquals(wall(NEW_YORK, 2025, Calendar.NOVEMBER, 9, 1, 30), next);
+        assertEquals(1762669800000L, next); // 06:30 UTC = 01:30 EST
+    }
+
+    @Test
+    public void fallBackOutsideTheRepeatIsUnaffected() {
+        // 00:30 and 02:30 exist once on the fall-back day
+        long after = wall(NEW_YORK, 2025, Calendar.NOVEMBER, 1, 12, 0);
+        assertEquals(1762057800000L, new AlarmRecurrence(SUNDAY, 0, 30, NEW_YORK).nextFireTime(after));
+        assertEquals(1762068600000L, new AlarmRecurrence(SUNDAY, 2, 30, NEW_YORK).nextFireTime(after));
+    }
+
+    @Test
+    public void nullZoneFollowsDeviceZone() {
+        TimeZone previous = TimeZone.getDefault();
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("Asia/Kolkata"));
+            long after = wall("Asia/Kolkata", 2025, Calendar.JUNE, 2, 7, 0);
+            AlarmRecurrence recurrence = new AlarmRecurrence(MONDAY, 8, 30, null);
+            assertEquals(wall("Asia/Kolkata", 2025, Calendar.JUNE, 2, 8, 30), recurrence.nextFireTime(after));
+        } finally {
+            TimeZone.setDefault(previous);
+        }
+    }
+
+    @Test
+    public void everyWeekdayAroundEveryTransitionMatchesJavaTime() {
+        for (String zoneId : DST_ZONES) {
+            ZoneId zone = ZoneId.of(zoneId);
+            for (long transitionMs : transitionsMs(zone)) {
+                for (long aroundMs : AROUND_TRANSITION_MS) {
+                    long after = transitionMs + aroundMs;
+                    for (int day = 0; day < 7; day++) {
+                        for (int[] time : DST_TIMES) {
+                            AlarmRecurrence recurrence = new AlarmRecurrence(1 << day, time[0], time[1], zoneId);
+                            assertEquals(describe(recurrence, after),
+                                expectedNextFireTime(recurrence, zone, after), recurrence.nextFireTime(after));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void dailyAlarmWalksYearsOfTransitionsLikeJavaTime() {
+        long start = ZonedDateTime.of(FIRST_YEAR, 1, 1, 0, 0, 0, 0, ZoneId.of("UTC")).toInstant().toEpochMilli();
+        long end = ZonedDateTime.of(LAST_YEAR + 1, 1, 1, 0, 0, 0, 0, ZoneId.of("UTC")).toInstant().toEpochMilli();
+        for (String zoneId : DST_ZONES) {
+            ZoneId zone = ZoneId.of(zoneId);
+            for (int[] time : DST_TIMES) {
+                // Re-armed from each ring, as AlarmScheduler.onAlarmFired does
+                AlarmRecurrence recurrence = new AlarmRecurrence(AlarmRecurrence.ALL_DAYS, time[0], time[1], zoneId);
+                long after = start;
+                while (after < end) {
+                    long next = recurrence.nextFireTime(after);
+                    assertEquals(describe(recurrence, after), expectedNextFireTime(recurrence, zone, after), next);
+                    after = next;
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNoDays() {
+        new AlarmRecurrence(0, 8, 30, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidTime() {
+        new AlarmRecurrence(MONDAY, 24, 0, null);
+    }
+
+    @Test
+    public void sameRuleComparesEveryField() {
+        AlarmRecurrence rule = new AlarmRecurrence(MONDAY, 8, 30, null);
+        assertTrue(rule.sameRule(new AlarmRecurrence(MONDAY, 8, 30, null)));
+        assertFalse(rule.sameRule(new AlarmRecurrence(MONDAY, 8, 31, null)));
+        assertFalse(rule.sameRule(new AlarmRecurrence(MONDAY, 8, 30, NEW_YORK)));
+        assertFalse(rule.sameRule(null));
+    }
+
+    /**
+     * Reference: java.time shifts a gap time forward by the gap and takes the
+     * earlier offset of an overlap, which is exactly the rule's contract
+     */
+    private static long expectedNextFireTime(AlarmRecurrence recurrence, ZoneId zone, long afterMs) {
+        LocalDate date = Instant.ofEpochMilli(afterMs).atZone(zone).toLocalDate();
+        for (int offset = 0; offset <= 7; offset++) {
+            LocalDate candidate = date.plusDays(offset);
+            int dayIndex = candidate.getDayOfWeek().getValue() % 7; // Sunday = 0
+            if ((recurrence.daysMask & (1 << dayIndex)) != 0) {
+                long candidateMs = ZonedDateTime.of(candidate, LocalTime.of(recurrence.hour, recurrence.minute), zone)
+                    .toInstant().toEpochMilli();
+                if (candidateMs > afterMs) {
+                    return candidateMs;
+                }
+            }
+        }
+        throw new AssertionError("No occurrence for " + describe(recurrence, afterMs));
+    }
+
+    private static long[] transitionsMs(ZoneId zone) {
+        ZoneRules rules = zone.getRules();
+        long end = ZonedDateTime.of(LAST_YEAR + 1, 1, 1, 0, 0, 0, 0, zone).toInstant().toEpochMilli();
+        Instant at = ZonedDateTime.of(FIRST_YEAR, 1, 1, 0, 0, 0, 0, zone).toInstant();
+        List<Long> transitions = new ArrayList<>();
+        for (ZoneOffsetTransition transition = rules.nextTransition(at);
+                transition != null && transition.toEpochSecond() * 1000 < end;
+                transition = rules.nextTransition(transition.getInstant())) {
+            transitions.add(transition.toEpochSecond() * 1000);
+        }
+        long[] result = new long[transitions.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = transitions.get(i);
+        }
+        return result;
+    }
+
+    private static String describe(AlarmRecurrence recurrence, long afterMs) {
+        return recurrence.timeZoneId + " mask " + recurrence.daysMask + " at " + recurrence.hour + ":"
+            + recurrence.minute + " after " + Instant.ofEpochMilli(afterMs);
+    }
+
+    private static long wall(String zoneId, int year, int month, int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone(zoneId));
+        calendar.clear();
+        calendar.set(year, month, day, hour, minute, 0);
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,91 @@
+package com.shakshamkarki.practice.baselineprofile
+
+import androidx.benchmark.macro.BaselineProfileMode
+import androidx.benchmark.macro.CompilationMode
+import androidx.benchmark.macro.ExperimentalMetricApi
+import androidx.benchmark.macro.StartupMode
+import androidx.benchmark.macro.TraceSectionMetric
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Cold fires - the app force-stopped before each one - with no AOT compilation
+ * and with the Baseline Profile, so the two runs show what the profile buys.
+ *
+ * Timings come from the app's own async trace sections rather than startup
+ * metrics, because the alarm path runs in the ":alarm" process:
+ * - AlarmFireToSound: AlarmReceiver delivery to the first audio frame
+ * - AlarmActivityInitialDisplay / AlarmActivityFullDisplay: AlarmActivity's
+ *   onCreate to its first frame and to reportFullyDrawn(), which waits for
+ *   the snooze budget to load and the Snooze button to settle
+ * - bindApplication: the cold ":alarm" process's Application setup, which
+ *   must not include React Native
+ *
+ * The profiled run fails if the alarm screen's median times go over budget.
+ * measureRepeated() hands the trace metrics to the benchmark output, not to
+ * the test, so the budget is checked against the same timings as AlarmActivity
+ * logs them. It is a device-only gate: nothing fails unless this is run on a
+ * connected device.
+ */
+@RunWith(AndroidJUnit4::class)
+@LargeTest
+class AlarmFireBenchmarks {
+
+    @get:Rule
+    val rule = MacrobenchmarkRule()
+
+    @Test
+    fun coldFireNoCompilation() {
+        coldFire(CompilationMode.None())
+    }
+
+    @Test
+    fun coldFireBaselineProfile() {
+        val timings = coldFire(CompilationMode.Partial(BaselineProfileMode.Require))
+        assertWithinBudget("Initial display", timings.map { it.initialDisplayMs }, INITIAL_DISPLAY_BUDGET_MS)
+        assertWithinBudget("Full display", timings.map { it.fullDisplayMs }, FULL_DISPLAY_BUDGET_MS)
+    }
+
+    @OptIn(ExperimentalMetricApi::class)
+    private fun coldFire(compilationMode: CompilationMode): List<ScreenTimings> {
+        val timings = mutableListOf<ScreenTimings>()
+        rule.measureRepeated(
+            packageName = PACKAGE_NAME,
+            metrics = listOf(
+                TraceSectionMetric("AlarmFireToSound", targetPackageOnly = false),
+                TraceSectionMetric("AlarmActivityInitialDisplay", targetPackageOnly = false),
+                TraceSectionMetric("AlarmActivityFullDisplay", targetPackageOnly = false),
+                TraceSectionMetric("bindApplication"),
+            ),
+            compilationMode = compilationMode,
+            startupMode = StartupMode.COLD,
+            iterations = 10,
+        ) {
+            clearLog()
+            fireAlarm()
+            showAlarmScreen()
+            timings += alarmScreenTimings()
+            stopAlarm()
+        }
+        return timings
+    }
+
+    private fun assertWithinBudget(name: String, samplesMs: List<Long>, budgetMs: Long) {
+        val medianMs = samplesMs.sorted()[samplesMs.size / 2]
+        assertTrue("$name median ${medianMs}ms is over its ${budgetMs}ms budget (samples: $samplesMs)",
+            medianMs <= budgetMs)
+    }
+
+    companion object {
+        /** AlarmActivity onCreate to first frame, median over the cold fires */
+        const val INITIAL_DISPLAY_BUDGET_MS = 300L
+
+        /** AlarmActivity onCreate to reportFullyDrawn(), median over the cold fires */
+        const val FULL_DISPLAY_BUDGET_MS = 400L
+    }
+}
@@ -0,0 +1,92 @@
+package com.shakshamkarki.practice.baselineprofile
+
+import androidx.benchmark.macro.MacrobenchmarkScope
+import androidx.test.uiautomator.By
+import androidx.test.uiautomator.Until
+import java.util.regex.Pattern
+
+const val PACKAGE_NAME = "com.shakshamkarki.practice"
+
+/** One fixed alarm ID - a snooze moves its single registration instead of piling up more */
+const val PROFILE_ALARM_ID = "baseline-profile"
+
+private const val RING_TIMEOUT_MS = 10_000L
+private const val UI_TIMEOUT_MS = 5_000L
+
+/** Button labels as the theme may capitalize them */
+private val STOP = Pattern.compile("(?i)stop")
+private val SNOOZE = Pattern.compile("(?i)snooze")
+
+/** AlarmActivity's log line once reportFullyDrawn() has been called */
+private val SCREEN_TIMINGS = Pattern.compile("First frame (\\d+)ms after onCreate, fully drawn at (\\d+)ms")
+
+/** AlarmActivity's onCreate to its first frame and to reportFullyDrawn() */
+data class ScreenTimings(val initialDisplayMs: Long, val fullDisplayMs: Long)
+
+/**
+ * Deliver a fire to AlarmReceiver exactly as AlarmManager would, then wait
+ * until AlarmAudioService is in the foreground and its audio has had time to
+ * start. AlarmReceiver is only exported in the profiling build types.
+ */
+fun MacrobenchmarkScope.fireAlarm() {
+    device.executeShellCommand(
+        "am broadcast -n $PACKAGE_NAME/.AlarmReceiver" +
+            " --es alarmId $PROFILE_ALARM_ID --es alarmTime Profile --el fireTime ${System.currentTimeMillis()}"
+    )
+    val deadline = System.currentTimeMillis() + RING_TIMEOUT_MS
+    while (System.currentTimeMillis() < deadline) {
+        val services = device.executeShellCommand("dumpsys activity services $PACKAGE_NAME/.AlarmAudioService")
+        if (services.contains("isForeground=true")) {
+            // Covers prepare and the first frames, which is the path worth compiling
+            Thread.sleep(1_000)
+            return
+        }
+        Thread.sleep(100)
+    }
+    throw AssertionError("Alarm did not start ringing within ${RING_TIMEOUT_MS}ms")
+}
+
+/**
+ * Bring up AlarmActivity as the full-screen intent would on a locked device
+ */
+fun MacrobenchmarkScope.showAlarmScreen() {
+    device.executeShellCommand(
+        "am start -n $PACKAGE_NAME/.AlarmActivity --es alarm_id $PROFILE_ALARM_ID --es alarm_time Profile"
+    )
+    if (!device.wait(Until.hasObject(By.text(STOP)), UI_TIMEOUT_MS)) {
+        throw AssertionError("AlarmActivity did not show within ${UI_TIMEOUT_MS}ms")
+    }
+}
+
+/**
+ * Drop logcat's buffer so alarmScreenTimings() only sees the next alarm screen
+ */
+fun MacrobenchmarkScope.clearLog() {
+    device.executeShellCommand("logcat -c")
+}
+
+/**
+ * Timings of the alarm screen shown since clearLog(), as AlarmActivity logs
+ * them. The benchmark's trace metrics only report; these are what a budget
+ * is checked against.
+ */
+fun MacrobenchmarkScope.alarmScreenTimings(): ScreenTimings {
+    val deadline = System.currentTimeMillis() + UI_TIMEOUT_MS
+    while (System.currentTimeMillis() < deadline) {
+        val matcher = SCREEN_TIMINGS.matcher(device.executeShellCommand("logcat -d -s AlarmActivity:D"))
+        if (matcher.find()) {
+            return ScreenTimings(matcher.group(1)!!.toLong(), matcher.group(2)!!.toLong())
+        }
+        Thread.sleep(100)
+    }
+    throw AssertionError("AlarmActivity did not report its timings within ${UI_TIMEOUT_MS}ms")
+}
+
+fun MacrobenchmarkScope.snoozeAlarm() = tapAndWaitForClose(SNOOZE)
+
+fun MacrobenchmarkScope.stopAlarm() = tapAndWaitForClose(STOP)
+
+private fun MacrobenchmarkScope.tapAndWaitForClose(label: Pattern) {
+    device.findObject(By.text(label)).click()
+    device.wait(Until.gone(By.text(label)), UI_TIMEOUT_MS)
+}
@@ -0,0 +1,39 @@
+package com.shakshamkarki.practice.baselineprofile
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Records the code the alarm path runs - AlarmReceiver, AlarmAudioService and
+ * its notification, AlarmActivity, Stop and Snooze - into the app's Baseline
+ * Profile, and into its Startup Profile so that code is also laid out first in
+ * the dex files.
+ *
+ * Each iteration snoozes and then stops the same alarm, which resets its
+ * snooze count. The last snooze stays scheduled and rings once, a few minutes
+ * after the run.
+ */
+@RunWith(AndroidJUnit4::class)
+@LargeTest
+class BaselineProfileGenerator {
+
+    @get:Rule
+    val rule = BaselineProfileRule()
+
+    @Test
+    fun alarmJourneys() = rule.collect(packageName = PACKAGE_NAME, includeInStartupProfile = true) {
+        // Fire -> sound -> alarm screen -> Snooze
+        fireAlarm()
+        showAlarmScreen()
+        snoozeAlarm()
+
+        // Fire -> sound -> alarm screen -> Stop
+        fireAlarm()
+        showAlarmScreen()
+        stopAlarm()
+    }
+}
@@ -8,6 +8,7 @@
 export { default as TimeDisplay } from './ui/TimeDisplay';
 export { default as AmPmSelector } from './ui/AmPmSelector';
 export { default as DaysSelector } from './ui/DaysSelector';
+export { default as NextAlarmIndicator } from './ui/NextAlarmIndicator';
 
 // Common Components
 export { default as AlarmList } from './common/AlarmList';
@@ -0,0 +1,41 @@
+import React, { useEffect, useState } from 'react';
+import { Text } from 'react-native';
+import NativeAlarmService from '../../services/NativeAlarmService';
+import { COLORS } from '../../constants/app';
+import { useAlarm } from '../../context';
+
+const formatCountdown = (ms) => {
+  const totalMinutes = Math.max(1, Math.ceil(ms / 60000));
+  const days = Math.floor(totalMinutes / (24 * 60));
+  const hours = Math.floor((totalMinutes % (24 * 60)) / 60);
+  const minutes = totalMinutes % 60;
+
+  if (days > 0) return `${days}d ${hours}h`;
+  if (hours > 0) return `${hours}h ${minutes}m`;
+  return `${minutes}m`;
+};
+
+// Reads the next alarm synchronously over JSI on every render - no loading
+// state, no promise round-trip. The native side answers from memory, so the
+// render never waits on SQLite. Re-renders on alarm edits, native alarm
+// events (fire/snooze/reschedule) and every 30 seconds.
+const NextAlarmIndicator = ({ style }) => {
+  useAlarm(); // subscribe so edits and events re-read the native registry
+  const [, setTick] = useState(0);
+
+  useEffect(() => {
+    const interval = setInterval(() => setTick((tick) => tick + 1), 30000);
+    return () => clearInterval(interval);
+  }, []);
+
+  const nextAlarmTime = NativeAlarmService.getNextAlarmTime();
+  if (nextAlarmTime == null) return null;
+
+  return (
+    <Text style={[{ fontSize: 14, color: COLORS.PRIMARY, textAlign: 'center', marginTop: 8 }, style]}>
+      Next alarm in {formatCountdown(nextAlarmTime - Date.now())}
+    </Text>
+  );
+};
+
+export default NextAlarmIndicator;
@@ -51,3 +51,13 @@ export const NOTIFICATION_CATEGORIES = {
 export const VIBRATION_PATTERNS = {
   ALARM: [500, 500], // vibrate 500ms, pause 500ms
 };
+
+// Native alarm lifecycle events (NativeAlarmService.addAlarmEventListener)
+export const ALARM_EVENTS = {
+  FIRED: 'fired',
+  AUDIO_STARTED: 'audioStarted',
+  STOPPED: 'stopped',
+  SNOOZED: 'snoozed',
+  RESCHEDULED: 'rescheduled',
+  MISSED: 'missed',
+};
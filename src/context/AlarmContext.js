@@ -1,9 +1,8 @@
 // components/AlarmContext.js
 import React, { createContext, useContext, useState, useEffect } from 'react';
 import AsyncStorage from '@react-native-async-storage/async-storage';
-import * as Notifications from 'expo-notifications';
-import NotificationService from '../services/NotificationService';
 import NativeAlarmService from '../services/NativeAlarmService';
+import { ALARM_EVENTS } from '../constants/app';
 
 export const AlarmContext = createContext();
 export const useAlarm = () => useContext(AlarmContext);
@@ -11,6 +10,9 @@ export const useAlarm = () => useContext(AlarmContext);
 export const AlarmProvider = ({ children }) => {
   const [alarms, setAlarms] = useState([]);
   const [recordings, setRecordings] = useState([]);
+  const [isLoaded, setIsLoaded] = useState(false);
+  const [ringingAlarmId, setRingingAlarmId] = useState(() => NativeAlarmService.getRingingAlarmId());
+  const [lastAlarmEvent, setLastAlarmEvent] = useState(null);
 
   // Load alarms & recordings from storage
   useEffect(() => {
@@ -48,6 +50,8 @@ export const AlarmProvider = ({ children }) => {
         } catch (clearError) {
           console.log('Error clearing storage:', clearError);
         }
+      } finally {
+        setIsLoaded(true);
       }
     })();
   }, []);
@@ -72,41 +76,26 @@ export const AlarmProvider = ({ children }) => {
     }
   }, [recordings]);
 
-  // NATIVE-ONLY alarm scheduling - 100% Java responsibility  
-  const scheduleAlarmNotification = async (alarm) => {
-    try {
-      console.log('🚨 NATIVE-ONLY SCHEDULING: 100% Java responsibility - NO Expo notifications');
-      
-      // COMPLETELY bypass NotificationService and use ONLY native scheduling
-      const result = await NativeAlarmService.scheduleNativeAlarmsForDays({
-        alarmId: alarm.id,
-        audioUri: alarm.audioUri || '',
-        days: alarm.days || [new Date().getDay()],
-        time: {
-          hour: alarm.hour,
-          minute: alarm.minute,
-          ampm: alarm.ampm,
-        },
-      });
+  // NATIVE-ONLY alarm scheduling - the whole alarm list is reconciled natively
+  // in one call whenever it changes, so edits, toggles and deletes all apply
+  useEffect(() => {
+    if (!isLoaded) return; // Don't wipe native alarms before storage is read
+    NativeAlarmService.syncAlarms(alarms);
+  }, [alarms, isLoaded]);
 
-      if (result && result.success) {
-        console.log('✅ NATIVE-ONLY alarm scheduled - Java handles ALL notifications');
-        // Store ONLY native IDs - completely eliminate Expo notifications
-        alarm.enhancedIds = {
-          expoIds: [], // ALWAYS empty - zero Expo notifications
-          nativeIds: result.alarmIds || [],
-        };
-        return true;
-      } else {
-        console.error('❌ Failed to schedule native alarm - NO fallback to Expo');
-        alarm.enhancedIds = { expoIds: [], nativeIds: [] };
-        return false;
-      }
-    } catch (error) {
-      console.error('Error scheduling native alarm:', error);
-      return false;
-    }
-  };
+  // Native lifecycle events - pushed live, or replayed as one batch on startup
+  useEffect(() => {
+    const subscription = NativeAlarmService.addAlarmEventListener((events) => {
+      events
+        .filter((event) => event.type === ALARM_EVENTS.MISSED)
+        .forEach((event) => console.log('⌛ Missed alarm:', event.alarmId, new Date(event.fireTime)));
+
+      // The batch may replay a fire that has since been stopped, so read the live state
+      setRingingAlarmId(NativeAlarmService.getRingingAlarmId());
+      setLastAlarmEvent(events[events.length - 1]);
+    });
+    return () => subscription.remove();
+  }, []);
 
   // Add alarm and recording
   const addAlarmAndRecording = (alarm, recording) => {
@@ -115,7 +104,6 @@ export const AlarmProvider = ({ children }) => {
       const exists = prev.some((r) => r.id === recording.id);
       return exists ? prev : [...prev, recording];
     });
-    scheduleAlarmNotification(alarm);
   };
 
   // Add recording only
@@ -155,6 +143,8 @@ export const AlarmProvider = ({ children }) => {
       value={{
         alarms,
         recordings,
+        ringingAlarmId,
+        lastAlarmEvent,
         addAlarmAndRecording,
         addRecordingOnly,
         addRecording,
@@ -1,7 +1,7 @@
 import React from 'react';
 import { View, StatusBar, SafeAreaView } from 'react-native';
 import { useNavigation } from '@react-navigation/native';
-import { TimeDisplay, Recorder, AlarmList } from '../components';
+import { TimeDisplay, NextAlarmIndicator, Recorder, AlarmList } from '../components';
 import BatteryOptimizationPrompt from '../components/common/BatteryOptimizationPrompt';
 
 const HomeScreen = () => {
@@ -14,6 +14,7 @@ const HomeScreen = () => {
      
       <View style={{ flex: 1, justifyContent: 'flex-start' }}>
         <TimeDisplay />
+        <NextAlarmIndicator />
         <BatteryOptimizationPrompt />
         <Recorder navigation={navigation} /> 
         <AlarmList />
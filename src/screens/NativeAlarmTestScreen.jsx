@@ -48,10 +48,10 @@ const NativeAlarmTestScreen = () => {
       addTestResult('🚨 Starting IMMEDIATE alarm test...');
       
       const testAudioUri = recordings.length > 0 ? recordings[0].uri : '';
-      const success = await NativeAlarmService.startImmediateAlarm('immediate-test-alarm', testAudioUri);
+      const result = await NativeAlarmService.startImmediateAlarm('immediate-test-alarm', testAudioUri);
       
-      if (success) {
-        addTestResult('✅ IMMEDIATE alarm started! Check if audio is playing.', true);
+      if (!result.error) {
+        addTestResult(`✅ IMMEDIATE alarm audible after ${result.timeToFirstAudioMs}ms (${result.source})`, true);
         Alert.alert(
           '🚨 Immediate Alarm Test',
           'Alarm should be playing NOW!\n\n' +
@@ -64,7 +64,7 @@ const NativeAlarmTestScreen = () => {
           ]
         );
       } else {
-        addTestResult('❌ Failed to start immediate alarm', false);
+        addTestResult(`❌ Immediate alarm failed: ${result.error} ${result.message || ''}`, false);
       }
     } catch (error) {
       addTestResult(`❌ Immediate alarm error: ${error.message}`, false);
@@ -181,6 +181,200 @@ const NativeAlarmTestScreen = () => {
     }
   };
 
+  const benchmarkCancelAll = async () => {
+    addTestResult('⏱️ Benchmarking cancel-all (probe vs registry)...');
+
+    for (const liveCount of [10, 100, 400]) {
+      const result = await NativeAlarmService.benchmarkCancelAll(liveCount);
+      if (result) {
+        addTestResult(
+          `⏱️ ${liveCount} live: probe ${(result.probeUs / 1000).toFixed(1)}ms, ` +
+          `registry ${(result.registryUs / 1000).toFixed(1)}ms`
+        );
+      } else {
+        addTestResult(`❌ Benchmark failed for ${liveCount} live alarms`, false);
+        return;
+      }
+    }
+  };
+
+  const enableWarmup = async () => {
+    const success = await NativeAlarmService.setWarmupLeadTime(45000);
+    addTestResult(
+      success ? '🌡️ Warm-up enabled: audio prepared 45s before each alarm' : '❌ Failed to enable warm-up',
+      success
+    );
+  };
+
+  const setShortRingPolicy = async () => {
+    const policy = await NativeAlarmService.setRingPolicy(null, {
+      maxRingMs: 60000,
+      autoSnoozes: 1,
+      snoozeMs: 60000,
+      escalateAfterMs: 30000,
+      maxSnoozes: 2,
+    });
+    addTestResult(
+      policy ? '⏳ Ring policy: 1 min ring, escalate at 30s, 1 auto-snooze, then dismiss; 2 user snoozes of 1 min' : '❌ Failed to set ring policy',
+      !!policy
+    );
+  };
+
+  // Schedules 20 alarms for the same instant, then checks they rang as one
+  // session: one session started, 19 fires coalesced into it, one player taken
+  const testFireStorm = async () => {
+    const before = await NativeAlarmService.getAlarmMetrics();
+    if (!before) {
+      addTestResult('❌ Failed to read alarm metrics', false);
+      return;
+    }
+
+    const fireDate = Date.now() + 30000;
+    const stamp = Date.now();
+    for (let i = 0; i < 20; i++) {
+      const success = await NativeAlarmService.scheduleNativeAlarm({
+        alarmId: `test-storm-${stamp}-${i}`,
+        fireDate,
+        audioPath: '', // Use default system sound
+        alarmTime: 'Fire Storm Test',
+      });
+      if (!success) {
+        addTestResult(`❌ Failed to schedule storm alarm ${i}`, false);
+        return;
+      }
+    }
+    addTestResult(`🌩️ 20 alarms scheduled for ${new Date(fireDate).toLocaleTimeString()} - checking 10s after`);
+
+    setTimeout(async () => {
+      const after = await NativeAlarmService.getAlarmMetrics();
+      if (!after) {
+        addTestResult('❌ Failed to read alarm metrics', false);
+        return;
+      }
+
+      const started = after.sessions.started - before.sessions.started;
+      const coalesced = after.sessions.coalesced - before.sessions.coalesced;
+      const players = (after.playerPool.hits + after.playerPool.misses) -
+        (before.playerPool.hits + before.playerPool.misses);
+      const passed = started === 1 && coalesced === 19 && players === 1;
+      addTestResult(
+        `${passed ? '✅' : '❌'} Fire storm: ${started} session(s), ${coalesced} coalesced, ${players} player(s)`,
+        passed
+      );
+    }, fireDate - Date.now() + 10000);
+  };
+
+  // Rings and stops 5 times in a row, timing each start to its first audio frame
+  const probeFirstAudioLatency = async () => {
+    const testAudioUri = recordings.length > 0 ? recordings[0].uri : '';
+    const timings = [];
+    addTestResult('⏱️ Probing time-to-first-audio (5 rings)...');
+
+    for (let i = 0; i < 5; i++) {
+      const result = await NativeAlarmService.startImmediateAlarm(`latency-probe-${i}`, testAudioUri);
+      await NativeAlarmService.stopCurrentAlarm();
+      if (result.error) {
+        addTestResult(`❌ Probe ${i + 1} failed: ${result.error} ${result.message || ''}`, false);
+        return;
+      }
+      timings.push(result.timeToFirstAudioMs);
+      addTestResult(`⏱️ Probe ${i + 1}: ${result.timeToFirstAudioMs}ms (${result.source})`);
+      await new Promise(resolve => setTimeout(resolve, 1000));
+    }
+
+    const sorted = [...timings].sort((a, b) => a - b);
+    addTestResult(`📊 Time-to-first-audio: median ${sorted[2]}ms, max ${sorted[4]}ms`);
+  };
+
+  const showAlarmMetrics = async () => {
+    const metrics = await NativeAlarmService.getAlarmMetrics();
+    if (!metrics) {
+      addTestResult('❌ Failed to read alarm metrics', false);
+      return;
+    }
+
+    addTestResult(`📊 ${metrics.totalRecorded} alarms recorded`);
+    addTestResult(`♻️ Player pool: ${metrics.playerPool.hits} hits / ${metrics.playerPool.misses} misses`);
+    addTestResult(`🧲 Ringing sessions: ${metrics.sessions.started} started, ${metrics.sessions.coalesced} fires coalesced`);
+    Object.entries(metrics.receiverWork).forEach(([action, stats]) => {
+      addTestResult(
+        `🧵 ${action} (n=${stats.count}): queued avg ${stats.avgWaitMs}ms / max ${stats.maxWaitMs}ms, ran avg ${stats.avgRunMs}ms / max ${stats.maxRunMs}ms`
+      );
+    });
+    Object.entries(metrics.stages).forEach(([stage, stats]) => {
+      addTestResult(
+        `📊 ${stage} (n=${stats.count}): p50 ${stats.p50}ms, p95 ${stats.p95}ms, p99 ${stats.p99}ms`
+      );
+    });
+  };
+
+  const checkAlarmProcess = async () => {
+    // Ring once so the alarm process has run its whole path before it is inspected
+    const result = await NativeAlarmService.startImmediateAlarm(`process-check-${Date.now()}`, '');
+    await NativeAlarmService.stopCurrentAlarm();
+    if (result.error) {
+      addTestResult(`❌ Ring failed: ${result.error} ${result.message || ''}`, false);
+      return;
+    }
+
+    const metrics = await NativeAlarmService.getAlarmMetrics();
+    if (!metrics) {
+      addTestResult('❌ Failed to read alarm metrics', false);
+      return;
+    }
+
+    const { pid, rssKb, reactNativeLibraries } = metrics.alarmProcess;
+    const passed = reactNativeLibraries.length === 0;
+    addTestResult(
+      passed
+        ? `✅ Alarm process ${pid} has no React Native libraries loaded`
+        : `❌ Alarm process ${pid} loaded ${reactNativeLibraries.join(', ')}`,
+      passed
+    );
+    addTestResult(`🧠 Alarm process RSS: ${Math.round(rssKb / 1024)}MB`);
+  };
+
+  const checkAlarmScreenBudget = async () => {
+    // Budgets for AlarmActivity, measured from its onCreate on real fires
+    const budgets = { timeToInitialDisplay: 250, timeToFullDisplay: 400 };
+    const metrics = await NativeAlarmService.getAlarmMetrics();
+    if (!metrics) {
+      addTestResult('❌ Failed to read alarm metrics', false);
+      return;
+    }
+
+    Object.entries(budgets).forEach(([stage, budgetMs]) => {
+      const stats = metrics.stages[stage];
+      if (!stats || stats.count === 0) {
+        addTestResult(`⚠️ ${stage}: no alarm screens recorded yet - let an alarm fire first`, false);
+        return;
+      }
+      const passed = stats.p95 <= budgetMs;
+      addTestResult(
+        `${passed ? '✅' : '❌'} ${stage} p95 ${stats.p95}ms (budget ${budgetMs}ms, n=${stats.count})`,
+        passed
+      );
+    });
+  };
+
+  const showWakeLockStats = async () => {
+    const stats = await NativeAlarmService.getWakeLockStats();
+    if (!stats) {
+      addTestResult('❌ Failed to read wake lock stats', false);
+      return;
+    }
+
+    addTestResult(`🔒 ${stats.active.length} wake locks held now`);
+    stats.active.forEach((hold) => {
+      addTestResult(`🔒 ${hold.reason} (${hold.alarmId}): ${hold.heldMs}ms held, ${hold.remainingMs}ms left`);
+    });
+    stats.alarms.forEach((stat) => {
+      addTestResult(
+        `🔋 ${stat.alarmId} ${stat.reason}: ${stat.heldMs}ms over ${stat.holds} holds (${stat.timeouts} timed out)`
+      );
+    });
+  };
+
   const clearTestResults = () => {
     setTestResults([]);
   };
@@ -276,6 +470,78 @@ const NativeAlarmTestScreen = () => {
           <Text style={styles.buttonText}>Test Enhanced Alarms (2m)</Text>
         </TouchableOpacity>
 
+        <TouchableOpacity 
+          style={[styles.testButton, !isNativeAvailable && styles.disabledButton]}
+          onPress={benchmarkCancelAll}
+          disabled={!isNativeAvailable}
+        >
+          <Text style={styles.buttonText}>Benchmark Cancel-All (10/100/400)</Text>
+        </TouchableOpacity>
+
+        <TouchableOpacity 
+          style={[styles.testButton, !isNativeAvailable && styles.disabledButton]}
+          onPress={showAlarmMetrics}
+          disabled={!isNativeAvailable}
+        >
+          <Text style={styles.buttonText}>Show Fire-to-Sound Latency</Text>
+        </TouchableOpacity>
+
+        <TouchableOpacity 
+          style={[styles.testButton, !isNativeAvailable && styles.disabledButton]}
+          onPress={probeFirstAudioLatency}
+          disabled={!isNativeAvailable}
+        >
+          <Text style={styles.buttonText}>Probe Time-to-First-Audio</Text>
+        </TouchableOpacity>
+
+        <TouchableOpacity 
+          style={[styles.testButton, !isNativeAvailable && styles.disabledButton]}
+          onPress={checkAlarmScreenBudget}
+          disabled={!isNativeAvailable}
+        >
+          <Text style={styles.buttonText}>Check Alarm Screen Display Budget</Text>
+        </TouchableOpacity>
+
+        <TouchableOpacity 
+          style={[styles.testButton, !isNativeAvailable && styles.disabledButton]}
+          onPress={showWakeLockStats}
+          disabled={!isNativeAvailable}
+        >
+          <Text style={styles.buttonText}>Show Wake Lock Stats</Text>
+        </TouchableOpacity>
+
+        <TouchableOpacity 
+          style={[styles.testButton, !isNativeAvailable && styles.disabledButton]}
+          onPress={checkAlarmProcess}
+          disabled={!isNativeAvailable}
+        >
+          <Text style={styles.buttonText}>Check Alarm Process (no React Native)</Text>
+        </TouchableOpacity>
+
+        <TouchableOpacity 
+          style={[styles.testButton, !isNativeAvailable && styles.disabledButton]}
+          onPress={testFireStorm}
+          disabled={!isNativeAvailable}
+        >
+          <Text style={styles.buttonText}>Fire 20 Alarms at Once</Text>
+        </TouchableOpacity>
+
+        <TouchableOpacity 
+          style={[styles.testButton, !isNativeAvailable && styles.disabledButton]}
+          onPress={setShortRingPolicy}
+          disabled={!isNativeAvailable}
+        >
+          <Text style={styles.buttonText}>Use 1-Minute Ring Policy</Text>
+        </TouchableOpacity>
+
+        <TouchableOpacity 
+          style={[styles.testButton, !isNativeAvailable && styles.disabledButton]}
+          onPress={enableWarmup}
+          disabled={!isNativeAvailable}
+        >
+          <Text style={styles.buttonText}>Enable 45s Pre-Fire Warm-Up</Text>
+        </TouchableOpacity>
+
         <TouchableOpacity 
           style={styles.clearButton}
           onPress={clearTestResults}
@@ -16,7 +16,7 @@ import { Ionicons } from '@expo/vector-icons';
 import { v4 as uuidv4 } from 'uuid';
 import * as Notifications from 'expo-notifications';
 
-import { DaysSelector } from '../components';
+import { DaysSelector, NextAlarmIndicator } from '../components';
 import { useAlarm } from '../context';
 import { DAYS, COLORS, UI_CONSTANTS } from '../constants/app';
 import { 
@@ -309,6 +309,8 @@ export default function SetAlarmScreen({ navigation, route }) {
         <View style={styles.daysSelectorContainer}>
           <DaysSelector selectedDays={selectedDays} onDaysChange={setSelectedDays} />
         </View>
+
+        <NextAlarmIndicator />
       </View>
 
       <View style={styles.bottomButtons}>
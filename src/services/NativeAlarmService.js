@@ -4,18 +4,14 @@
  * Bridge to native Android AlarmManager for alarms that work when app is terminated
  */
 
-import { NativeModules, Platform } from 'react-native';
+import { Platform } from 'react-native';
+import NativeAlarmModule from '../specs/NativeAlarmModule';
+import { DAYS } from '../constants/app';
+import { to24h, formatTimeLabel } from '../utils/time';
 
-const { NativeAlarmModule } = NativeModules;
-
-// Safely import utils
-let nextDateForDayAtTime;
-try {
-  const timeUtils = require('../utils/time');
-  nextDateForDayAtTime = timeUtils.nextDateForDayAtTime;
-} catch (error) {
-  console.warn('Could not import time utils:', error);
-}
+// One native subscription fanned out to every JS listener
+const alarmEventListeners = new Set();
+let nativeEventSubscription = null;
 
 class NativeAlarmService {
   /**
@@ -30,6 +26,70 @@ class NativeAlarmService {
     }
   }
 
+  /**
+   * Subscribe to native alarm lifecycle events (see ALARM_EVENTS).
+   * Events that happened while JS was not running are replayed in one batch
+   * to the listeners registered when the first subscription attaches.
+   * @param {Function} listener - Called with an array of { id, type, alarmId, timestamp, fireTime }
+   * @returns {{ remove: Function }} Subscription
+   */
+  static addAlarmEventListener(listener) {
+    alarmEventListeners.add(listener);
+
+    if (this.isAvailable() && !nativeEventSubscription) {
+      try {
+        nativeEventSubscription = NativeAlarmModule.onAlarmEvents(({ events }) => {
+          alarmEventListeners.forEach((l) => l(events));
+        });
+        NativeAlarmModule.attachAlarmEvents();
+      } catch (error) {
+        console.error('Failed to attach native alarm events:', error);
+      }
+    }
+
+    return {
+      remove: () => {
+        alarmEventListeners.delete(listener);
+      },
+    };
+  }
+
+  /**
+   * Next scheduled native alarm (synchronous JSI read from native memory - safe during render)
+   * @returns {number|null} Epoch ms, or null when nothing is scheduled
+   */
+  static getNextAlarmTime() {
+    if (!this.isAvailable()) {
+      return null;
+    }
+    const nextAlarmTime = NativeAlarmModule.getNextAlarmTime();
+    return nextAlarmTime >= 0 ? nextAlarmTime : null;
+  }
+
+  /**
+   * Number of alarms registered with AlarmManager (synchronous JSI read from native memory)
+   * @returns {number} Armed alarm count
+   */
+  static getArmedAlarmCount() {
+    return this.isAvailable() ? NativeAlarmModule.getArmedAlarmCount() : 0;
+  }
+
+  /**
+   * Exact-alarm permission (synchronous JSI read)
+   * @returns {boolean} Permission status
+   */
+  static canScheduleExactAlarms() {
+    return this.isAvailable() ? NativeAlarmModule.canScheduleExactAlarms() : true;
+  }
+
+  /**
+   * ID of the alarm that is ringing right now (synchronous JSI read)
+   * @returns {string|null} Alarm ID, or null when nothing is ringing
+   */
+  static getRingingAlarmId() {
+    return this.isAvailable() ? NativeAlarmModule.getRingingAlarmId() : null;
+  }
+
   /**
    * Schedule a native alarm that works when app is terminated
    * @param {Object} params - Alarm parameters
@@ -70,6 +130,95 @@ class NativeAlarmService {
     }
   }
 
+  /**
+   * Bit 0 = Sun ... bit 6 = Sat, matching DAYS
+   * @param {Array} days - Day names or Date.getDay() numbers
+   * @returns {number} Weekday bitmask
+   */
+  static toDaysMask(days) {
+    return days.reduce((mask, day) => {
+      const index = typeof day === 'number' ? day : DAYS.indexOf(day);
+      return index >= 0 ? mask | (1 << index) : mask;
+    }, 0);
+  }
+
+  /**
+   * Reconcile native alarms with the app's full alarm list in one bridge call.
+   * Only alarms that changed are touched natively.
+   * @param {Array} alarms - App alarm objects ({ id, hour, minute, ampm, days, audioUri, enabled })
+   * @returns {Promise<Object|null>} { added, updated, canceled, unchanged, durationMs }
+   */
+  static async syncAlarms(alarms) {
+    try {
+      if (!this.isAvailable()) {
+        return null;
+      }
+
+      const desired = alarms
+        .filter((alarm) => alarm.enabled !== false)
+        .map((alarm) => {
+          const { hour, minute } = to24h(String(alarm.hour), String(alarm.minute), alarm.ampm);
+          const audioUri = alarm.audioUri || '';
+          return {
+            alarmId: alarm.id,
+            daysMask: this.toDaysMask(alarm.days && alarm.days.length ? alarm.days : DAYS),
+            hour,
+            minute,
+            audioPath: audioUri.startsWith('file://') ? audioUri.replace('file://', '') : audioUri,
+            alarmTime: formatTimeLabel(alarm.hour, String(alarm.minute).padStart(2, '0'), alarm.ampm),
+          };
+        });
+
+      const result = await NativeAlarmModule.syncAlarms(desired);
+      console.log('🔄 Native alarms synced:', result);
+      return result;
+
+    } catch (error) {
+      console.error('Failed to sync native alarms:', error);
+      return null;
+    }
+  }
+
+  /**
+   * Schedule a weekly native alarm. The recurrence is stored natively, so
+   * each occurrence re-arms the next one without the app being opened.
+   * @param {Object} params - Alarm parameters
+   * @returns {Promise<number|null>} Next fire time in ms, or null on failure
+   */
+  static async scheduleRepeatingNativeAlarm({
+    alarmId,
+    days,
+    hour24,
+    minute,
+    audioPath,
+    alarmTime,
+  }) {
+    try {
+      if (!this.isAvailable()) {
+        console.warn('Native alarm module not available');
+        return null;
+      }
+
+      const daysMask = this.toDaysMask(days);
+
+      const nextFireTime = await NativeAlarmModule.scheduleRepeatingAlarm(
+        alarmId,
+        daysMask,
+        hour24,
+        minute,
+        audioPath || '',
+        alarmTime || 'Alarm'
+      );
+
+      console.log('✅ Weekly native alarm scheduled, next:', new Date(nextFireTime).toLocaleString());
+      return nextFireTime;
+
+    } catch (error) {
+      console.error('Failed to schedule weekly native alarm:', error);
+      return null;
+    }
+  }
+
   /**
    * Cancel a native alarm
    * @param {string} alarmId - Alarm ID to cancel
@@ -96,27 +245,29 @@ class NativeAlarmService {
   }
 
   /**
-   * Start immediate alarm playback (for when alarm should ring right now)
+   * Start immediate alarm playback (for when alarm should ring right now).
+   * Waits until audio is actually playing, so it doubles as a latency probe.
    * @param {string} alarmId - Unique alarm identifier
    * @param {string} audioUri - Path to the audio file
-   * @returns {Promise<boolean>} Success status
+   * @returns {Promise<Object>} { alarmId, timeToFirstAudioMs, source } once audible,
+   *   or { error, message } if it never got there (STOPPED, START_FAILED, PLAYER_ERROR, NO_AUDIO, TIMEOUT)
    */
   static async startImmediateAlarm(alarmId, audioUri) {
     try {
       if (!this.isAvailable()) {
         console.warn('Native alarm module not available');
-        return false;
+        return { error: 'UNAVAILABLE', message: 'Native alarm module not available' };
       }
 
       console.log('🚨 Starting immediate native alarm:', { alarmId, audioUri });
 
-      await NativeAlarmModule.startImmediateAlarm(alarmId, audioUri);
-      console.log('✅ Immediate alarm started successfully');
-      return true;
+      const result = await NativeAlarmModule.startImmediateAlarm(alarmId, audioUri);
+      console.log(`✅ Immediate alarm audible after ${result.timeToFirstAudioMs}ms (${result.source})`);
+      return result;
 
     } catch (error) {
       console.error('Failed to start immediate alarm:', error);
-      return false;
+      return { error: error.code || 'IMMEDIATE_ALARM_FAILED', message: error.message };
     }
   }
 
@@ -164,6 +315,193 @@ class NativeAlarmService {
     }
   }
 
+  /**
+   * Cancel every native alarm whose ID starts with the given prefix
+   * @param {string} prefix - Alarm ID prefix (e.g. the base alarm ID)
+   * @returns {Promise<number>} Number of canceled alarms
+   */
+  static async cancelNativeAlarmsWithPrefix(prefix) {
+    try {
+      if (!this.isAvailable()) {
+        console.warn('Native alarm module not available');
+        return 0;
+      }
+
+      const canceledCount = await NativeAlarmModule.cancelAlarmsWithPrefix(prefix);
+      console.log(`✅ Canceled ${canceledCount} native alarms with prefix ${prefix}`);
+      return canceledCount;
+
+    } catch (error) {
+      console.error('Failed to cancel native alarms with prefix:', error);
+      return 0;
+    }
+  }
+
+  /**
+   * Measure cancel-all cost: legacy request-code probe vs alarm registry.
+   * Only runs with no alarms scheduled, as the registry side cancels everything.
+   * @param {number} liveCount - Number of throwaway alarms to arm first (0-400)
+   * @returns {Promise<Object|null>} Timings in microseconds
+   */
+  static async benchmarkCancelAll(liveCount) {
+    try {
+      if (!this.isAvailable()) {
+        return null;
+      }
+
+      return await NativeAlarmModule.benchmarkCancelAll(liveCount);
+
+    } catch (error) {
+      console.error('Cancel-all benchmark failed:', error);
+      return null;
+    }
+  }
+
+  /**
+   * Choose how alarms are registered with Android's AlarmManager
+   * @param {string} mode - 'per_alarm' (one registration each) or
+   *   'single_armed' (only the soonest alarm is registered)
+   * @returns {Promise<boolean>} Success status
+   */
+  static async setSchedulerMode(mode) {
+    try {
+      if (!this.isAvailable()) {
+        return false;
+      }
+
+      await NativeAlarmModule.setSchedulerMode(mode);
+      console.log('🔀 Native scheduler mode:', mode);
+      return true;
+
+    } catch (error) {
+      console.error('Failed to set scheduler mode:', error);
+      return false;
+    }
+  }
+
+  /**
+   * Prepare the next alarm's audio natively this long before it rings,
+   * so the fire itself only has to start playback
+   * @param {number} leadMs - Lead time in ms (max 60 seconds), 0 to disable
+   * @returns {Promise<boolean>} Success status
+   */
+  static async setWarmupLeadTime(leadMs) {
+    try {
+      if (!this.isAvailable()) {
+        return false;
+      }
+
+      await NativeAlarmModule.setWarmupLeadTime(leadMs);
+      console.log('🌡️ Native warm-up lead time:', leadMs);
+      return true;
+
+    } catch (error) {
+      console.error('Failed to set warm-up lead time:', error);
+      return false;
+    }
+  }
+
+  /**
+   * Alarms that fire within this long of one already ringing join its
+   * session instead of starting their own - one sound, one notification,
+   * stopped or snoozed together
+   * @param {number} windowMs - Window in ms (max 5 minutes), 0 to disable
+   * @returns {Promise<boolean>} Success status
+   */
+  static async setCoalesceWindow(windowMs) {
+    try {
+      if (!this.isAvailable()) {
+        return false;
+      }
+
+      await NativeAlarmModule.setCoalesceWindow(windowMs);
+      console.log('🧲 Native coalescing window:', windowMs);
+      return true;
+
+    } catch (error) {
+      console.error('Failed to set coalescing window:', error);
+      return false;
+    }
+  }
+
+  /**
+   * How long an unanswered alarm rings before it auto-snoozes, and how many
+   * times in a row, before it is dismissed and reported missed. Also sets the
+   * snooze length and how many times the user may snooze (maxSnoozes, 0 = no snooze)
+   * @param {string|null} alarmId - Alarm to configure, or null for the default
+   * @param {Object} policy - { maxRingMs, autoSnoozes, snoozeMs, escalateAfterMs, maxSnoozes } (escalateAfterMs 0 = never switch to the system sound)
+   * @returns {Promise<Object|null>} The stored policy, or null on failure
+   */
+  static async setRingPolicy(alarmId, policy) {
+    try {
+      if (!this.isAvailable()) {
+        return null;
+      }
+
+      const stored = await NativeAlarmModule.setRingPolicy(alarmId || '', policy);
+      console.log('⏳ Native ring policy for', alarmId || 'all alarms', stored);
+      return stored;
+
+    } catch (error) {
+      console.error('Failed to set ring policy:', error);
+      return null;
+    }
+  }
+
+  /**
+   * Details of the last native restore after a reboot or clock/zone change
+   * @returns {Promise<Object|null>} { reason, restoredCount, durationMs, restoredAt }
+   */
+  static async getLastRestoreInfo() {
+    try {
+      if (!this.isAvailable()) {
+        return null;
+      }
+
+      return await NativeAlarmModule.getLastRestoreInfo();
+
+    } catch (error) {
+      console.error('Failed to read restore info:', error);
+      return null;
+    }
+  }
+
+  /**
+   * Fire-to-sound latency percentiles per stage, from the native ring buffer
+   * @returns {Promise<Object|null>} { totalRecorded, stages: { [stage]: { count, p50, p95, p99, max } }, playerPool: { hits, misses }, sessions: { started, coalesced }, receiverWork: { [action]: { count, avgWaitMs, maxWaitMs, avgRunMs, maxRunMs } }, alarmProcess: { pid, rssKb, reactNativeLibraries } }
+   */
+  static async getAlarmMetrics() {
+    try {
+      if (!this.isAvailable()) {
+        return null;
+      }
+
+      return await NativeAlarmModule.getAlarmMetrics();
+
+    } catch (error) {
+      console.error('Failed to read alarm metrics:', error);
+      return null;
+    }
+  }
+
+  /**
+   * Cumulative wake lock time per alarm, plus holds active right now
+   * @returns {Promise<Object|null>} { alarms: [{ alarmId, reason, heldMs, holds, timeouts }], active: [{ alarmId, reason, count, heldMs, remainingMs }] }
+   */
+  static async getWakeLockStats() {
+    try {
+      if (!this.isAvailable()) {
+        return null;
+      }
+
+      return await NativeAlarmModule.getWakeLockStats();
+
+    } catch (error) {
+      console.error('Failed to read wake lock stats:', error);
+      return null;
+    }
+  }
+
   /**
    * Check if the app has permission to schedule exact alarms (Android 12+)
    * @returns {Promise<boolean>} Permission status
@@ -219,7 +557,6 @@ class NativeAlarmService {
         console.log(`🎵 Audio conversion: ${audioUri} -> ${audioPath}`);
       }
 
-      const scheduledIds = [];
       const { hour, minute, ampm } = time;
       
       // Convert to 24-hour format
@@ -232,25 +569,19 @@ class NativeAlarmService {
 
       const timeLabel = `${hour}:${minute.toString().padStart(2, '0')} ${ampm}`;
 
-      for (const day of days) {
-        const fireDate = nextDateForDayAtTime(day, hour24, minute);
-        const uniqueAlarmId = `${alarmId}-${day}`;
-
-        console.log(`📅 Scheduling for ${day}: ${uniqueAlarmId} at ${fireDate.toLocaleString()}`);
-
-        const success = await this.scheduleNativeAlarm({
-          alarmId: uniqueAlarmId,
-          fireDate: fireDate.getTime(),
-          audioPath,
-          alarmTime: timeLabel,
-        });
+      // One native registration covers every selected day and re-arms itself weekly
+      const nextFireTime = await this.scheduleRepeatingNativeAlarm({
+        alarmId,
+        days,
+        hour24,
+        minute: parseInt(minute),
+        audioPath,
+        alarmTime: timeLabel,
+      });
 
-        if (success) {
-          scheduledIds.push(uniqueAlarmId);
-        }
-      }
+      const scheduledIds = nextFireTime != null ? [alarmId] : [];
 
-      console.log(`✅ Native alarms scheduled: ${scheduledIds.length}/${days.length}`);
+      console.log(`✅ Native weekly alarm scheduled for ${days.length} days: ${scheduledIds.length > 0}`);
       
       return {
         success: scheduledIds.length > 0,
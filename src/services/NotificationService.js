@@ -103,15 +103,8 @@ class NotificationService {
     try {
       console.log('🚨 Scheduling NATIVE-FIRST alarms (Native Primary + Expo Fallback)');
 
-      // CRITICAL: Clean up old alarms FIRST to prevent 500 limit
-      if (NativeAlarmService.isAvailable()) {
-        console.log('🧹 CLEANUP: Preventing 500 alarm limit by cleaning old alarms');
-        try {
-          await NativeAlarmService.cancelAllAlarms();
-        } catch (cleanupError) {
-          console.warn('Alarm cleanup failed, continuing:', cleanupError);
-        }
-      }
+      // No cancel-all cleanup needed: the native registry re-arms an existing
+      // alarm ID in place, and syncAlarms reconciles the full alarm list
 
       // SIMPLIFIED: Use ONLY native alarms for ALL alarm functionality
       if (NativeAlarmService.isAvailable()) {
@@ -0,0 +1,71 @@
+/**
+ * NativeAlarmModule TurboModule spec
+ *
+ * Codegen input for the Android native alarm module. Cheap reads are
+ * synchronous JSI calls; anything that mutates alarm state is async.
+ */
+
+import type { TurboModule } from 'react-native';
+import { TurboModuleRegistry } from 'react-native';
+import type { EventEmitter } from 'react-native/Libraries/Types/CodegenTypes';
+
+// type is one of: fired, audioStarted, stopped, snoozed, rescheduled, missed
+export type AlarmEvent = {
+  id: number; // monotonically increasing queue ID
+  type: string;
+  alarmId: string | null;
+  timestamp: number; // epoch ms when it happened natively
+  fireTime?: number; // scheduled/snooze/next-occurrence time the event refers to
+};
+
+export type AlarmEventBatch = {
+  events: Array<AlarmEvent>;
+};
+
+export interface Spec extends TurboModule {
+  // Lifecycle events - queued natively while JS is away, replayed on attach
+  readonly onAlarmEvents: EventEmitter<AlarmEventBatch>;
+  attachAlarmEvents(): void;
+
+  // Synchronous reads - safe to call during render; answered from memory, not SQLite
+  getNextAlarmTime(): number; // epoch ms, or -1 when nothing is scheduled
+  getArmedAlarmCount(): number;
+  canScheduleExactAlarms(): boolean;
+  getRingingAlarmId(): string | null;
+
+  // Scheduling
+  scheduleAlarm(alarmId: string, fireTimeMs: number, audioPath: string, alarmTime: string): Promise<string>;
+  scheduleRepeatingAlarm(
+    alarmId: string,
+    daysMask: number,
+    hour: number,
+    minute: number,
+    audioPath: string,
+    alarmTime: string
+  ): Promise<number>;
+  syncAlarms(alarms: Array<Object>): Promise<Object>;
+  cancelAlarm(alarmId: string): Promise<string>;
+  cancelAlarmsWithPrefix(prefix: string): Promise<number>;
+  cancelAllAlarms(): Promise<string>;
+  setSchedulerMode(mode: string): Promise<string>;
+  getSchedulerMode(): Promise<string>;
+  setWarmupLeadTime(leadMs: number): Promise<number>; // 0 disables pre-fire warm-up
+  setCoalesceWindow(windowMs: number): Promise<number>; // 0 disables fire coalescing
+  // alarmId '' sets the default; policy: { maxRingMs, autoSnoozes, snoozeMs, escalateAfterMs, maxSnoozes }
+  setRingPolicy(alarmId: string, policy: Object): Promise<Object>;
+
+  // Playback
+  // Resolves once audio is out: { alarmId, timeToFirstAudioMs, source }
+  startImmediateAlarm(alarmId: string, audioUri: string): Promise<Object>;
+  stopCurrentAlarm(): Promise<string>;
+
+  // Diagnostics
+  checkAlarmPermissions(): Promise<boolean>;
+  getLastRestoreInfo(): Promise<Object | null>;
+  getAlarmMetrics(): Promise<Object>;
+  getWakeLockStats(): Promise<Object>;
+  benchmarkCancelAll(liveCount: number): Promise<Object>;
+}
+
+// Android only - null on iOS, where there is no native alarm module
+export default TurboModuleRegistry.get<Spec>('NativeAlarmModule');